@@ -14,6 +14,7 @@ import java.util.zip.InflaterInputStream;
 import gate.Annotation;
 import gate.Document;
 import gate.Factory;
+import gate.FeatureMap;
 import gate.GateConstants;
 import gate.corpora.DocumentContentImpl;
 import gate.corpora.DocumentImpl;
@@ -23,6 +24,19 @@ import gate.util.GateException;
 
 public class DocumentUtil {
 
+	/**
+	 * written after the document name, streams of version 1 contain only the
+	 * name and the document
+	 */
+	private static final Integer FORMAT_VERSION = 2;
+
+	/**
+	 * writes the name, the format version, the features and the document, so
+	 * name and features can be read without deserializing the whole document.
+	 * The features are the same instance as the features of the document, so
+	 * they are stored only once. Versions before format version 2 cannot read
+	 * the stream.
+	 */
 	public static void writeDocument(Document document, OutputStream out, boolean compress) throws IOException {
 		OutputStream os = out;
 		if (compress) {
@@ -30,6 +44,8 @@ public class DocumentUtil {
 		}
 		try (ObjectOutputStream oos = new ObjectOutputStream(os)) {
 			oos.writeObject(document.getName());
+			oos.writeObject(FORMAT_VERSION);
+			oos.writeObject(document.getFeatures());
 			oos.writeObject(document);
 			oos.flush();
 		}
@@ -50,6 +66,30 @@ public class DocumentUtil {
 		}
 	}
 
+	/**
+	 * reads the features written in front of the document, streams written
+	 * without features are read up to the end of the document
+	 */
+	public static FeatureMap readDocumentFeatures(InputStream in, boolean compressed) throws IOException {
+		InputStream is = in;
+		if (compressed) {
+			is = new InflaterInputStream(is);
+		}
+		try (ObjectInputStream ois = new GateObjectInputStream(is)) {
+			try {
+				ois.readObject();
+				Object object = ois.readObject();
+				if (object instanceof Document) {
+					return ((Document) object).getFeatures();
+				}
+				checkFormatVersion(object);
+				return (FeatureMap) ois.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException(e);
+			}
+		}
+	}
+
 	public static Document readDocument(InputStream in, boolean compressed) throws IOException, GateException {
 		Document readDocument = readRawDocument(in, compressed);
 
@@ -82,7 +122,14 @@ public class DocumentUtil {
 		try (ObjectInputStream ois = new GateObjectInputStream(is)) {
 			try {
 				String documentName = (String) ois.readObject();
-				Document document = (Document) ois.readObject();
+				Object object = ois.readObject();
+				if (!(object instanceof Document)) {
+					checkFormatVersion(object);
+					// features in front of the document
+					ois.readObject();
+					object = ois.readObject();
+				}
+				Document document = (Document) object;
 				if (!documentName.contentEquals(document.getName())) {
 					throw new IllegalStateException("document names does not match");
 				}
@@ -93,6 +140,12 @@ public class DocumentUtil {
 		}
 	}
 
+	private static void checkFormatVersion(Object formatVersion) throws IOException {
+		if (!FORMAT_VERSION.equals(formatVersion)) {
+			throw new IOException("unsupported document format version " + formatVersion);
+		}
+	}
+
 	public static void validateEmptyDocument(Document document) throws DocumentFormatException {
 		if (!document.getAnnotations().isEmpty()) {
 			throw new DocumentFormatException("document has already annotations in default annotation set");
@@ -124,6 +177,16 @@ public class DocumentUtil {
 	}
 
 	public static final void copyDocumentValues(Document fromDocument, Document toDocument) {
+		copyDocumentValues(fromDocument, toDocument, false);
+	}
+
+	/**
+	 * @param copyOriginalMarkups if true, the original markups are copied as
+	 *                            well, otherwise the original markups of the
+	 *                            target document are kept
+	 */
+	public static final void copyDocumentValues(Document fromDocument, Document toDocument,
+			boolean copyOriginalMarkups) {
 		toDocument.setContent(new DocumentContentImpl(fromDocument.getContent().toString()));
 		if (!fromDocument.getAnnotations().isEmpty()) {
 			for (Annotation annotation : fromDocument.getAnnotations()) {
@@ -134,7 +197,8 @@ public class DocumentUtil {
 			toDocument.getAnnotations().getRelations().addAll(fromDocument.getAnnotations().getRelations());
 		}
 		for (String annotationSetName : fromDocument.getAnnotationSetNames()) {
-			if (GateConstants.ORIGINAL_MARKUPS_ANNOT_SET_NAME.contentEquals(annotationSetName)) {
+			if (!copyOriginalMarkups
+					&& GateConstants.ORIGINAL_MARKUPS_ANNOT_SET_NAME.contentEquals(annotationSetName)) {
 				continue;
 			}
 			if (!fromDocument.getAnnotations(annotationSetName).isEmpty()) {
@@ -0,0 +1,48 @@
+package gate.virtualcorpus;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes sidecar files of a {@link VirtualCorpus} to a temporary file first and
+ * moves it over the previous file afterwards, so a crash while writing never
+ * leaves a broken file.
+ */
+final class AtomicFiles {
+
+	interface Writer {
+		void write(OutputStream out) throws IOException;
+	}
+
+	private AtomicFiles() {
+	}
+
+	/**
+	 * writes the file deflated
+	 */
+	public static void write(Path file, Writer writer) throws IOException {
+		Path directory = file.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try {
+			try (OutputStream out = new BufferedOutputStream(
+					new DeflaterOutputStream(Files.newOutputStream(temporaryFile)))) {
+				writer.write(out);
+			}
+			try {
+				Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+package gate.virtualcorpus;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The indexes of the documents of a {@link VirtualCorpus}, which were already
+ * processed, persisted in a file so an interrupted run can be resumed.
+ *
+ * The indexes are held in a {@link BitSet}, which is stored deflated, so long
+ * runs of processed or unprocessed documents take only a few bytes. The file is
+ * written with {@link AtomicFiles}, so a crash while flushing never leaves a
+ * broken checkpoint. The checkpoint is flushed at most once per flush interval
+ * while documents are marked, and when the corpus is unloaded.
+ */
+final class Checkpoint {
+
+	private static final int MAGIC = 0x56434350;
+	private static final int VERSION = 1;
+
+	private final Path file;
+	private final int shardIndex;
+	private final int shardCount;
+	private final long flushIntervalNanos;
+	private final BitSet processed;
+	private boolean dirty;
+	private long lastFlushNanos;
+
+	/**
+	 * opens the checkpoint stored in the file or creates an empty checkpoint, if
+	 * the file does not exist yet
+	 *
+	 * @param flushIntervalMillis minimal time between two flushes while marking
+	 *                            documents
+	 * @throws IOException if the file cannot be read or was written for another
+	 *                     shard
+	 */
+	public Checkpoint(Path file, int shardIndex, int shardCount, long flushIntervalMillis) throws IOException {
+		this.file = file;
+		this.shardIndex = shardIndex;
+		this.shardCount = shardCount;
+		this.flushIntervalNanos = flushIntervalMillis * 1000000L;
+		this.processed = Files.exists(file) ? read() : new BitSet();
+		this.lastFlushNanos = System.nanoTime();
+	}
+
+	private BitSet read() throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new InflaterInputStream(Files.newInputStream(file))))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a checkpoint file");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("unsupported checkpoint version " + version + " in " + file);
+			}
+			int storedShardIndex = in.readInt();
+			int storedShardCount = in.readInt();
+			if (storedShardIndex != shardIndex || storedShardCount != shardCount) {
+				throw new IOException("checkpoint " + file + " was written for shard " + storedShardIndex + " of "
+						+ storedShardCount + ", not for shard " + shardIndex + " of " + shardCount);
+			}
+			long[] words = new long[in.readInt()];
+			for (int i = 0; i < words.length; i++) {
+				words[i] = in.readLong();
+			}
+			return BitSet.valueOf(words);
+		}
+	}
+
+	public synchronized boolean isProcessed(int index) {
+		return processed.get(index);
+	}
+
+	/**
+	 * @return the first unprocessed index from the index on
+	 */
+	public synchronized int nextUnprocessed(int index) {
+		return processed.nextClearBit(index);
+	}
+
+	/**
+	 * @return the first processed index from the index on, or -1 if there is
+	 *         none
+	 */
+	public synchronized int nextProcessed(int index) {
+		return processed.nextSetBit(index);
+	}
+
+	public synchronized int getProcessedCount() {
+		return processed.cardinality();
+	}
+
+	/**
+	 * marks the document as processed and flushes the checkpoint, if the flush
+	 * interval has passed
+	 */
+	public synchronized void markProcessed(int index) throws IOException {
+		if (!processed.get(index)) {
+			processed.set(index);
+			dirty = true;
+		}
+		if (dirty && System.nanoTime() - lastFlushNanos >= flushIntervalNanos) {
+			flush();
+		}
+	}
+
+	public synchronized void flush() throws IOException {
+		if (!dirty) {
+			return;
+		}
+		long[] words = processed.toLongArray();
+		AtomicFiles.write(file, out -> {
+			DataOutputStream data = new DataOutputStream(out);
+			data.writeInt(MAGIC);
+			data.writeInt(VERSION);
+			data.writeInt(shardIndex);
+			data.writeInt(shardCount);
+			data.writeInt(words.length);
+			for (long word : words) {
+				data.writeLong(word);
+			}
+			data.flush();
+		});
+		dirty = false;
+		lastFlushNanos = System.nanoTime();
+	}
+
+}
@@ -0,0 +1,343 @@
+package gate.virtualcorpus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.log4j.Logger;
+
+import gate.Corpus;
+import gate.Document;
+import gate.FeatureMap;
+import gate.Resource;
+import gate.creole.ResourceInstantiationException;
+import gate.creole.metadata.CreoleParameter;
+import gate.creole.metadata.CreoleResource;
+import gate.creole.metadata.Optional;
+import gate.util.GateRuntimeException;
+
+/**
+ * Concatenates several virtual corpora to one corpus. The documents are loaded
+ * and saved by the backends of the child corpora, the child corpora themselves
+ * do not load any documents and should not be used otherwise, while they are
+ * part of the composite corpus. The backends of the children are called under
+ * their own backend lock, concurrent loads without it. The composite corpus
+ * cannot be sharded, but its children can.
+ */
+@CreoleResource(name = "CompositeVirtualCorpus", interfaceName = "gate.Corpus", icon = "corpus", comment = "A corpus which concatenates several virtual corpora")
+public class CompositeVirtualCorpus extends VirtualCorpus {
+	private static final long serialVersionUID = 4371907427785123950L;
+	private static Logger logger = Logger.getLogger(CompositeVirtualCorpus.class);
+
+	private static final int MAX_SIZE_THREADS = 8;
+
+	protected List<Corpus> corpora;
+
+	private transient List<VirtualCorpus> children;
+	private transient List<CompletableFuture<Integer>> childSizes;
+
+	/**
+	 * index of the first document of each child, followed by the size of the
+	 * corpus
+	 */
+	private transient int[] childOffsets;
+
+	@CreoleParameter(comment = "The virtual corpora to concatenate", collectionElementType = Corpus.class)
+	public void setCorpora(List<Corpus> corpora) {
+		this.corpora = corpora;
+	}
+
+	public List<Corpus> getCorpora() {
+		return corpora;
+	}
+
+	@Override
+	@Optional
+	@CreoleParameter(comment = "If true, changes to content, annotation and feature of documents will not be saved", defaultValue = "true")
+	public void setReadonlyDocuments(Boolean readonlyDocuments) {
+		super.setReadonlyDocuments(readonlyDocuments);
+	}
+
+	@Override
+	public Boolean getReadonlyDocuments() {
+		return super.getReadonlyDocuments();
+	}
+
+	@Override
+	public Resource init() throws ResourceInstantiationException {
+		if (corpora == null || corpora.isEmpty()) {
+			throw new ResourceInstantiationException("corpora must not be empty");
+		}
+		if (getShardIndex() != null || getShardCount() != null) {
+			throw new ResourceInstantiationException(
+					"shardIndex and shardCount are not supported, shard the child corpora instead");
+		}
+		children = new ArrayList<>(corpora.size());
+		for (Corpus corpus : corpora) {
+			if (!(corpus instanceof VirtualCorpus)) {
+				throw new ResourceInstantiationException("corpus " + corpus + " is not a virtual corpus");
+			}
+			if (corpus == this || children.contains(corpus)) {
+				throw new ResourceInstantiationException("corpus " + corpus + " is contained more than once");
+			}
+			VirtualCorpus child = (VirtualCorpus) corpus;
+			if (!getReadonlyDocuments() && child.getReadonlyDocuments()) {
+				throw new ResourceInstantiationException("corpus " + corpus + " has readonly documents");
+			}
+			children.add(child);
+		}
+		loadChildSizes();
+		initVirtualCorpus();
+		return this;
+	}
+
+	/**
+	 * starts getting the sizes of all children in parallel, they are awaited by
+	 * {@link #loadSize()}. The children have loaded or estimated their sizes on
+	 * init, so only estimated sizes are loaded again.
+	 */
+	private void loadChildSizes() {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(children.size(), MAX_SIZE_THREADS),
+				runnable -> {
+					Thread thread = new Thread(runnable, "CompositeVirtualCorpus size " + getName());
+					thread.setDaemon(true);
+					return thread;
+				});
+		childSizes = new ArrayList<>(children.size());
+		for (VirtualCorpus child : children) {
+			childSizes.add(CompletableFuture.supplyAsync(child::exactSize, executor));
+		}
+		executor.shutdown();
+	}
+
+	@Override
+	public void cleanup() {
+		cleanupVirtualCorpus();
+	}
+
+	@Override
+	protected int loadSize() throws Exception {
+		int[] childOffsets = new int[children.size() + 1];
+		for (int i = 0; i < children.size(); i++) {
+			int childSize;
+			try {
+				childSize = childSizes.get(i).join();
+			} catch (CompletionException e) {
+				throw new GateRuntimeException("cannot load size of corpus " + children.get(i).getName(),
+						e.getCause());
+			}
+			childOffsets[i + 1] = Math.addExact(childOffsets[i], childSize);
+		}
+		this.childOffsets = childOffsets;
+		return childOffsets[children.size()];
+	}
+
+	/**
+	 * @return the index of the child containing the document index, the child
+	 *         offsets are known, since the size is loaded before any index is
+	 *         accessed
+	 */
+	private int child(int index) {
+		int child = Arrays.binarySearch(childOffsets, 0, children.size(), index);
+		if (child < 0) {
+			child = -child - 2;
+		} else {
+			// skip empty children, which have the same offset as their successor
+			while (child + 1 < children.size() && childOffsets[child + 1] == index) {
+				child++;
+			}
+		}
+		return child;
+	}
+
+	private int localIndex(int child, int index) {
+		return index - childOffsets[child];
+	}
+
+	/**
+	 * concurrent loading is only supported, if all children support it
+	 */
+	@Override
+	protected boolean isConcurrentLoadingSupported() {
+		for (VirtualCorpus child : children) {
+			if (!child.isConcurrentLoadingSupported()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected String loadDocumentName(int index) throws Exception {
+		int child = child(index);
+		int localIndex = localIndex(child, index);
+		VirtualCorpus childCorpus = children.get(child);
+		return childCorpus.callBackend(() -> childCorpus.loadDocumentName(localIndex));
+	}
+
+	@Override
+	protected boolean supportsBulkDocumentNames() {
+		for (VirtualCorpus child : children) {
+			if (!child.supportsBulkDocumentNames()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected List<String> loadDocumentNames(int fromIndex, int toIndex) throws Exception {
+		List<String> documentNames = new ArrayList<>(toIndex - fromIndex);
+		int index = fromIndex;
+		while (index < toIndex) {
+			int child = child(index);
+			int endIndex = Math.min(toIndex, childOffsets[child + 1]);
+			int localFromIndex = localIndex(child, index);
+			int localToIndex = localIndex(child, endIndex);
+			VirtualCorpus childCorpus = children.get(child);
+			documentNames.addAll(
+					childCorpus.callBackend(() -> childCorpus.loadDocumentNames(localFromIndex, localToIndex)));
+			index = endIndex;
+		}
+		return documentNames;
+	}
+
+	/**
+	 * concurrent loads are delegated without the backend lock of the child
+	 */
+	@Override
+	protected Document loadDocument(int index) throws Exception {
+		int child = child(index);
+		int localIndex = localIndex(child, index);
+		VirtualCorpus childCorpus = children.get(child);
+		if (!holdsBackendLock()) {
+			return childCorpus.loadDocument(localIndex);
+		}
+		return childCorpus.callBackend(() -> childCorpus.loadDocument(localIndex));
+	}
+
+	@Override
+	protected List<Document> loadDocuments(int fromIndex, int toIndex) throws Exception {
+		List<Document> documents = new ArrayList<>(toIndex - fromIndex);
+		int index = fromIndex;
+		while (index < toIndex) {
+			int child = child(index);
+			int endIndex = Math.min(toIndex, childOffsets[child + 1]);
+			int localFromIndex = localIndex(child, index);
+			int localToIndex = localIndex(child, endIndex);
+			VirtualCorpus childCorpus = children.get(child);
+			documents.addAll(childCorpus.callBackend(() -> childCorpus.loadDocuments(localFromIndex, localToIndex)));
+			index = endIndex;
+		}
+		return documents;
+	}
+
+	@Override
+	protected FeatureMap loadDocumentFeatures(int index) throws Exception {
+		int child = child(index);
+		int localIndex = localIndex(child, index);
+		VirtualCorpus childCorpus = children.get(child);
+		return childCorpus.callBackend(() -> childCorpus.loadDocumentFeatures(localIndex));
+	}
+
+	/**
+	 * delegates the features of each child with one call, null if a child cannot
+	 * read features without the content
+	 */
+	@Override
+	protected List<FeatureMap> loadDocumentFeatures(int fromIndex, int toIndex) throws Exception {
+		List<FeatureMap> documentFeatures = new ArrayList<>(toIndex - fromIndex);
+		int index = fromIndex;
+		while (index < toIndex) {
+			int child = child(index);
+			int endIndex = Math.min(toIndex, childOffsets[child + 1]);
+			int localFromIndex = localIndex(child, index);
+			int localToIndex = localIndex(child, endIndex);
+			VirtualCorpus childCorpus = children.get(child);
+			List<FeatureMap> childFeatures = childCorpus
+					.callBackend(() -> childCorpus.loadDocumentFeatures(localFromIndex, localToIndex));
+			if (childFeatures == null) {
+				return null;
+			}
+			documentFeatures.addAll(childFeatures);
+			index = endIndex;
+		}
+		return documentFeatures;
+	}
+
+	@Override
+	protected void setDocument(int index, Document document) throws Exception {
+		int child = child(index);
+		int localIndex = localIndex(child, index);
+		VirtualCorpus childCorpus = children.get(child);
+		childCorpus.callBackend(() -> {
+			childCorpus.setDocument(localIndex, document);
+			return null;
+		});
+	}
+
+	/**
+	 * delegates the documents of each child with one call
+	 */
+	@Override
+	protected void setDocuments(Map<Integer, Document> documents) throws Exception {
+		Map<Integer, Map<Integer, Document>> childDocuments = new TreeMap<>();
+		for (int index : new TreeSet<>(documents.keySet())) {
+			int child = child(index);
+			childDocuments.computeIfAbsent(child, c -> new TreeMap<>()).put(localIndex(child, index),
+					documents.get(index));
+		}
+		for (int child : childDocuments.keySet()) {
+			VirtualCorpus childCorpus = children.get(child);
+			childCorpus.callBackend(() -> {
+				childCorpus.setDocuments(childDocuments.get(child));
+				return null;
+			});
+		}
+	}
+
+	@Override
+	protected void documentUnloaded(int index, Document document) {
+		int child = child(index);
+		int localIndex = localIndex(child, index);
+		VirtualCorpus childCorpus = children.get(child);
+		try {
+			childCorpus.callBackend(() -> {
+				childCorpus.documentUnloaded(localIndex, document);
+				return null;
+			});
+		} catch (Exception e) {
+			throw new GateRuntimeException("cannot unload document " + index, e);
+		}
+	}
+
+	@Override
+	protected void addDocuments(int index, Collection<? extends Document> documents) throws Exception {
+		throw new GateRuntimeException("adding documents is not supported");
+	}
+
+	@Override
+	protected void deleteDocuments(Set<Integer> indexes) throws Exception {
+		throw new GateRuntimeException("deleting documents is not supported");
+	}
+
+	@Override
+	protected void deleteAllDocuments() throws Exception {
+		throw new GateRuntimeException("deleting documents is not supported");
+	}
+
+	@Override
+	protected void renameDocument(Document document, String oldName, String newName) throws Exception {
+		throw new GateRuntimeException("renaming document is not supported");
+	}
+
+}
@@ -0,0 +1,22 @@
+package gate.virtualcorpus;
+
+import java.util.EventListener;
+
+/**
+ * Listens for the exact size of a {@link VirtualCorpus} with estimateSize set,
+ * which replaces the estimated size once it is loaded in background. The
+ * difference is not signalled as added or removed documents, because there
+ * are no documents to pass to a {@link gate.event.CorpusListener}.
+ */
+public interface CorpusSizeListener extends EventListener {
+
+	/**
+	 * called when the estimated size is replaced by the exact size
+	 * 
+	 * @param corpus        whose size changed
+	 * @param estimatedSize the size returned by size() so far
+	 * @param exactSize     the size returned by size() from now on
+	 */
+	void corpusSizeChanged(VirtualCorpus corpus, int estimatedSize, int exactSize);
+
+}
@@ -4,9 +4,18 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.net.URI;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -133,6 +142,7 @@ public class DirectoryCorpus extends VirtualCorpus {
 	public Resource init() throws ResourceInstantiationException {
 		checkValidMimeType(mimeType, false);
 		checkValidExporterClassName(exporterClassName, false);
+		checkShard();
 		if (!getImmutableCorpus()) {
 			throw new ResourceInstantiationException("mutable directory corpus currently not supported");
 		}
@@ -163,6 +173,18 @@ public class DirectoryCorpus extends VirtualCorpus {
 			throw new ResourceInstantiationException("Not a directory " + directory);
 		}
 
+		Path manifestPath = getManifestPath();
+		if (manifestPath != null && manifestPath.toAbsolutePath().startsWith(directory.toPath())) {
+			throw new ResourceInstantiationException("manifestFile must not be inside directoryURL");
+		}
+		@SuppressWarnings("unchecked")
+		List<File> manifestFiles = (List<File>) readManifestState();
+		if (manifestFiles != null) {
+			files = new ArrayList<>(manifestFiles);
+			initVirtualCorpus();
+			return this;
+		}
+
 		String[] supportedExtensions = !extensions.isEmpty() ? extensions.toArray(new String[0])
 				: DocumentFormat.getSupportedFileSuffixes().toArray(new String[0]);
 
@@ -180,10 +202,68 @@ public class DirectoryCorpus extends VirtualCorpus {
 				files.add(file);
 			}
 		}
+		Collections.sort(files);
+		if (isSharded()) {
+			int[] shardFiles = shardRange(files.size());
+			files = new ArrayList<>(files.subList(shardFiles[0], shardFiles[1]));
+		}
 		initVirtualCorpus();
 		return this;
 	}
 
+	@Override
+	public void cleanup() {
+		cleanupVirtualCorpus();
+	}
+
+	/**
+	 * files are only listed if one of the directories changed, so the
+	 * fingerprint consists of the parameters and the modification times of all
+	 * directories
+	 */
+	@Override
+	protected String loadManifestFingerprint() throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		digest.update((directory + "\n" + extensions + "\n" + recursive + "\n" + hidden + "\n")
+				.getBytes(StandardCharsets.UTF_8));
+		Path root = directory.toPath();
+		digestDirectories(digest, root, root, new HashSet<>());
+		return new BigInteger(1, digest.digest()).toString(16);
+	}
+
+	/**
+	 * adds the modification time of the directory and, if recursive, of its
+	 * subdirectories to the digest. Only directories are visited, files are
+	 * skipped when listing. Directories reached twice by links are skipped too.
+	 */
+	private void digestDirectories(MessageDigest digest, Path root, Path dir, Set<Path> visited)
+			throws IOException {
+		if (!visited.add(dir.toRealPath())) {
+			return;
+		}
+		digest.update((root.relativize(dir) + "\n" + java.nio.file.Files.getLastModifiedTime(dir) + "\n")
+				.getBytes(StandardCharsets.UTF_8));
+		if (!recursive) {
+			return;
+		}
+		List<Path> subdirectories = new ArrayList<>();
+		try (DirectoryStream<Path> stream = java.nio.file.Files.newDirectoryStream(dir,
+				path -> java.nio.file.Files.isDirectory(path))) {
+			for (Path subdirectory : stream) {
+				subdirectories.add(subdirectory);
+			}
+		}
+		Collections.sort(subdirectories);
+		for (Path subdirectory : subdirectories) {
+			digestDirectories(digest, root, subdirectory, visited);
+		}
+	}
+
+	@Override
+	protected Serializable getManifestState() {
+		return new ArrayList<>(files);
+	}
+
 	protected static DocumentExporter getExporterForExtension(String fileExtension) {
 		try {
 			for (Resource resource : Gate.getCreoleRegister().getAllInstances("gate.DocumentExporter")) {
@@ -212,17 +292,41 @@ public class DirectoryCorpus extends VirtualCorpus {
 		return directory.toURI().relativize(files.get(index).toURI()).getPath();
 	}
 
+	@Override
+	protected boolean supportsBulkDocumentNames() {
+		return true;
+	}
+
+	@Override
+	protected List<String> loadDocumentNames(int fromIndex, int toIndex) throws Exception {
+		URI directoryURI = directory.toURI();
+		List<String> documentNames = new ArrayList<>(toIndex - fromIndex);
+		for (File file : files.subList(fromIndex, toIndex)) {
+			documentNames.add(directoryURI.relativize(file.toURI()).getPath());
+		}
+		return documentNames;
+	}
+
+	/**
+	 * files are read independently of each other
+	 */
+	@Override
+	protected boolean isConcurrentLoadingSupported() {
+		return true;
+	}
+
 	@Override
 	protected Document loadDocument(int index) throws Exception {
 		File file = files.get(index);
 		String content = FileUtils.readFileToString(file);
+		recordBytesRead(file.length());
 
 		FeatureMap features = Factory.newFeatureMap();
 		FeatureMap params = Factory.newFeatureMap();
 		params.put(Document.DOCUMENT_STRING_CONTENT_PARAMETER_NAME, content);
 		params.put(Document.DOCUMENT_ENCODING_PARAMETER_NAME, encoding);
 		params.put(Document.DOCUMENT_MIME_TYPE_PARAMETER_NAME, mimeType);
-		String documentName = getDocumentName(index);
+		String documentName = loadDocumentName(index);
 		return (Document) Factory.createResource(DocumentImpl.class.getName(), params, features, documentName);
 	}
 
@@ -255,6 +359,7 @@ public class DirectoryCorpus extends VirtualCorpus {
 				export(outputStream, document);
 			}
 		}
+		recordBytesWritten(file.length());
 	}
 
 	@Override
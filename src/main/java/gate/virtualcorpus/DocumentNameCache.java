@@ -0,0 +1,143 @@
+package gate.virtualcorpus;
+
+import java.util.Set;
+
+/**
+ * LRU cache of document names by index, limited by the number of names and
+ * optionally by the estimated bytes of the names.
+ *
+ * The names are stored in a single access ordered {@link IndexMap}, so a hit
+ * and an eviction are both constant time.
+ */
+final class DocumentNameCache {
+
+	private static final long ENTRY_BYTES = 64;
+
+	private final int maxEntries;
+	private final long maxBytes;
+	private IndexMap<String> names = new IndexMap<>();
+	private long bytes;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param maxEntries maximum count of names, the cache is disabled if null or
+	 *                   not positive
+	 * @param maxBytes   maximum estimated bytes of names, unbounded if null or not
+	 *                   positive
+	 */
+	public DocumentNameCache(Integer maxEntries, Long maxBytes) {
+		this.maxEntries = maxEntries != null && maxEntries > 0 ? maxEntries : 0;
+		this.maxBytes = maxBytes != null && maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+	}
+
+	public boolean isEnabled() {
+		return maxEntries > 0;
+	}
+
+	/**
+	 * @return the cached name or null, counted as hit or miss
+	 */
+	public String get(int index) {
+		String name = names.touch(index);
+		if (name != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return name;
+	}
+
+	/**
+	 * @return the cached name or null, without counting or touching it
+	 */
+	public String peek(int index) {
+		return names.get(index);
+	}
+
+	public boolean containsKey(int index) {
+		return names.containsKey(index);
+	}
+
+	public void put(int index, String name) {
+		if (!isEnabled() || name == null) {
+			remove(index);
+			return;
+		}
+		String oldName = names.touch(index);
+		if (oldName != null) {
+			bytes -= bytes(oldName);
+		}
+		names.put(index, name);
+		bytes += bytes(name);
+		evict();
+	}
+
+	public void remove(int index) {
+		String oldName = names.remove(index);
+		if (oldName != null) {
+			bytes -= bytes(oldName);
+		}
+	}
+
+	public void clear() {
+		names.clear();
+		bytes = 0;
+	}
+
+	public void shiftIndexes(int startIndex, int shift) {
+		names.shiftIndexes(startIndex, shift);
+	}
+
+	public void removeIndexes(Set<Integer> indexes) {
+		IndexMap<String> removed = names.removeIndexes(indexes);
+		for (int index : removed.indexes()) {
+			bytes -= bytes(removed.get(index));
+		}
+	}
+
+	/**
+	 * @return the cached indexes, least recently used first
+	 */
+	public int[] indexes() {
+		return names.indexes();
+	}
+
+	public int size() {
+		return names.size();
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	private void evict() {
+		while (names.size() > maxEntries || (bytes > maxBytes && names.size() > 1)) {
+			String name = names.remove(names.firstIndex());
+			bytes -= bytes(name);
+			evictions++;
+		}
+	}
+
+	/**
+	 * @return estimated heap bytes of a cached name, including the table entry
+	 */
+	private static long bytes(String name) {
+		return ENTRY_BYTES + 2L * name.length();
+	}
+
+}
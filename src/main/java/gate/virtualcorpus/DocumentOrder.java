@@ -0,0 +1,231 @@
+package gate.virtualcorpus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The order of documents in a {@link MapDbCorpus}, which maps the index of a
+ * document in the corpus to the id under which it is stored.
+ *
+ * The ids are stored in blocks of at most {@link #MAX_BLOCK_SIZE} ids in a
+ * persistent map, the order of the blocks is stored under
+ * {@link #SEQUENCE_KEY}. Inserting or deleting documents only rewrites the
+ * affected blocks and the block sequence, but never the stored documents. All
+ * blocks are also held in memory, an index is found by binary search over the
+ * start indexes of the blocks.
+ */
+final class DocumentOrder {
+
+	static final int SEQUENCE_KEY = -1;
+	static final int MAX_BLOCK_SIZE = 4096;
+
+	private static class Block {
+		private final int blockId;
+		private int[] documentIds;
+
+		private Block(int blockId, int[] documentIds) {
+			this.blockId = blockId;
+			this.documentIds = documentIds;
+		}
+	}
+
+	private final Map<Integer, int[]> storedBlocks;
+	private List<Block> blocks = new ArrayList<>();
+	private int[] blockStarts = new int[0];
+	private int size;
+	private int nextBlockId;
+	private int nextDocumentId;
+
+	/**
+	 * opens the order stored in the map. If there is no stored order yet, the
+	 * documents are expected to be stored with their index as id, as by previous
+	 * versions of {@link MapDbCorpus}.
+	 *
+	 * @param storedBlocks persistent map of blocks
+	 * @param size         count of documents, used if there is no stored order
+	 */
+	public DocumentOrder(Map<Integer, int[]> storedBlocks, int size) {
+		this.storedBlocks = storedBlocks;
+		int[] sequence = storedBlocks.get(SEQUENCE_KEY);
+		if (sequence == null) {
+			int[] documentIds = new int[size];
+			for (int i = 0; i < size; i++) {
+				documentIds[i] = i;
+			}
+			nextDocumentId = size;
+			blocks.addAll(createBlocks(documentIds));
+			for (Block block : blocks) {
+				storedBlocks.put(block.blockId, block.documentIds);
+			}
+			storeSequence();
+		} else {
+			for (int blockId : sequence) {
+				int[] documentIds = storedBlocks.get(blockId);
+				blocks.add(new Block(blockId, documentIds));
+				nextBlockId = Math.max(nextBlockId, blockId + 1);
+				for (int documentId : documentIds) {
+					nextDocumentId = Math.max(nextDocumentId, documentId + 1);
+				}
+			}
+		}
+		updateBlockStarts();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the id of the document at the index
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int blockIndex = blockIndex(index);
+		return blocks.get(blockIndex).documentIds[index - blockStarts[blockIndex]];
+	}
+
+	/**
+	 * inserts count new documents at the index
+	 *
+	 * @return the ids of the new documents
+	 */
+	public int[] insert(int index, int count) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int[] newDocumentIds = new int[count];
+		for (int i = 0; i < count; i++) {
+			newDocumentIds[i] = nextDocumentId++;
+		}
+		if (count == 0) {
+			return newDocumentIds;
+		}
+		int blockIndex;
+		int offset;
+		if (blocks.isEmpty()) {
+			blocks.add(new Block(nextBlockId++, new int[0]));
+			blockIndex = 0;
+			offset = 0;
+		} else if (index == size) {
+			blockIndex = blocks.size() - 1;
+			offset = blocks.get(blockIndex).documentIds.length;
+		} else {
+			blockIndex = blockIndex(index);
+			offset = index - blockStarts[blockIndex];
+		}
+		Block block = blocks.get(blockIndex);
+		int[] documentIds = new int[block.documentIds.length + count];
+		System.arraycopy(block.documentIds, 0, documentIds, 0, offset);
+		System.arraycopy(newDocumentIds, 0, documentIds, offset, count);
+		System.arraycopy(block.documentIds, offset, documentIds, offset + count, block.documentIds.length - offset);
+
+		List<Block> splitBlocks = createBlocks(documentIds);
+		blocks.remove(blockIndex);
+		storedBlocks.remove(block.blockId);
+		blocks.addAll(blockIndex, splitBlocks);
+		for (Block splitBlock : splitBlocks) {
+			storedBlocks.put(splitBlock.blockId, splitBlock.documentIds);
+		}
+		storeSequence();
+		updateBlockStarts();
+		return newDocumentIds;
+	}
+
+	/**
+	 * removes the documents at the indexes, the following documents move down
+	 *
+	 * @return the ids of the removed documents
+	 */
+	public int[] remove(Set<Integer> indexes) {
+		int[] sortedIndexes = indexes.stream().mapToInt(Integer::intValue).sorted().toArray();
+		int[] removedDocumentIds = new int[sortedIndexes.length];
+		int i = 0;
+		while (i < sortedIndexes.length) {
+			int blockIndex = blockIndex(sortedIndexes[i]);
+			Block block = blocks.get(blockIndex);
+			int blockStart = blockStarts[blockIndex];
+			int blockEnd = blockStart + block.documentIds.length;
+			int[] documentIds = new int[block.documentIds.length];
+			int length = 0;
+			for (int index = blockStart; index < blockEnd; index++) {
+				int documentId = block.documentIds[index - blockStart];
+				if (i < sortedIndexes.length && sortedIndexes[i] == index) {
+					removedDocumentIds[i++] = documentId;
+				} else {
+					documentIds[length++] = documentId;
+				}
+			}
+			block.documentIds = Arrays.copyOf(documentIds, length);
+			if (length > 0) {
+				storedBlocks.put(block.blockId, block.documentIds);
+			}
+		}
+		List<Block> remainingBlocks = new ArrayList<>(blocks.size());
+		for (Block block : blocks) {
+			if (block.documentIds.length == 0) {
+				storedBlocks.remove(block.blockId);
+			} else {
+				remainingBlocks.add(block);
+			}
+		}
+		blocks = remainingBlocks;
+		storeSequence();
+		updateBlockStarts();
+		return removedDocumentIds;
+	}
+
+	public void clear() {
+		for (Block block : blocks) {
+			storedBlocks.remove(block.blockId);
+		}
+		blocks = new ArrayList<>();
+		nextDocumentId = 0;
+		storeSequence();
+		updateBlockStarts();
+	}
+
+	private List<Block> createBlocks(int[] documentIds) {
+		List<Block> blocks = new ArrayList<>();
+		if (documentIds.length == 0) {
+			return blocks;
+		}
+		int blockCount = Math.max(1, (documentIds.length + MAX_BLOCK_SIZE - 1) / MAX_BLOCK_SIZE);
+		int blockSize = (documentIds.length + blockCount - 1) / blockCount;
+		for (int from = 0; from < documentIds.length; from += blockSize) {
+			int to = Math.min(from + blockSize, documentIds.length);
+			blocks.add(new Block(nextBlockId++, Arrays.copyOfRange(documentIds, from, to)));
+		}
+		return blocks;
+	}
+
+	private int blockIndex(int index) {
+		int blockIndex = Arrays.binarySearch(blockStarts, index);
+		if (blockIndex < 0) {
+			blockIndex = -blockIndex - 2;
+		}
+		return blockIndex;
+	}
+
+	private void storeSequence() {
+		int[] sequence = new int[blocks.size()];
+		for (int i = 0; i < sequence.length; i++) {
+			sequence[i] = blocks.get(i).blockId;
+		}
+		storedBlocks.put(SEQUENCE_KEY, sequence);
+	}
+
+	private void updateBlockStarts() {
+		blockStarts = new int[blocks.size()];
+		size = 0;
+		for (int i = 0; i < blockStarts.length; i++) {
+			blockStarts[i] = size;
+			size += blocks.get(i).documentIds.length;
+		}
+	}
+
+}
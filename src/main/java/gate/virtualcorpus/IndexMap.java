@@ -0,0 +1,373 @@
+package gate.virtualcorpus;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A map from primitive int indexes to values, used by {@link VirtualCorpus} for
+ * its loaded and prefetched documents and by {@link DocumentNameCache}.
+ *
+ * Entries are stored in an open addressing table without boxing the keys and
+ * are linked in insertion order. {@link #touch(int)} moves an entry to the end
+ * of that order, so the map can also be used as a LRU cache with
+ * {@link #firstIndex()} as the eldest entry.
+ *
+ * {@link #shiftIndexes(int, int)} and {@link #removeIndexes(Set)} follow
+ * documents inserted into or removed from the corpus. They move only the
+ * entries after the changed index and keep the linked order.
+ */
+final class IndexMap<E> {
+
+	private static final int FREE = -1;
+	private static final int DELETED = -2;
+	private static final int NONE = -1;
+	private static final int MIN_CAPACITY = 16;
+
+	private int[] keys;
+	private Object[] values;
+	private int[] before;
+	private int[] after;
+	private int head = NONE;
+	private int tail = NONE;
+	private int size;
+	private int deleted;
+
+	public IndexMap() {
+		allocate(MIN_CAPACITY);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean containsKey(int index) {
+		return slot(index) >= 0;
+	}
+
+	public E get(int index) {
+		int slot = slot(index);
+		return slot >= 0 ? value(slot) : null;
+	}
+
+	/**
+	 * @return the value of the index, which is moved to the end of the order
+	 */
+	public E touch(int index) {
+		int slot = slot(index);
+		if (slot < 0) {
+			return null;
+		}
+		if (slot != tail) {
+			unlink(slot);
+			link(slot);
+		}
+		return value(slot);
+	}
+
+	public E put(int index, E value) {
+		if (index < 0) {
+			throw new IllegalArgumentException("negative index " + index);
+		}
+		int slot = slot(index);
+		if (slot >= 0) {
+			E oldValue = value(slot);
+			values[slot] = value;
+			return oldValue;
+		}
+		insert(index, value);
+		return null;
+	}
+
+	public E remove(int index) {
+		int slot = slot(index);
+		if (slot < 0) {
+			return null;
+		}
+		E oldValue = value(slot);
+		unlink(slot);
+		keys[slot] = DELETED;
+		values[slot] = null;
+		size--;
+		deleted++;
+		return oldValue;
+	}
+
+	public void clear() {
+		allocate(MIN_CAPACITY);
+	}
+
+	/**
+	 * @return the first index in order, i.e. the eldest entry
+	 */
+	public int firstIndex() {
+		if (head == NONE) {
+			throw new NoSuchElementException();
+		}
+		return keys[head];
+	}
+
+	/**
+	 * @return all indexes in order
+	 */
+	public int[] indexes() {
+		int[] indexes = new int[size];
+		int i = 0;
+		for (int slot = head; slot != NONE; slot = after[slot]) {
+			indexes[i++] = keys[slot];
+		}
+		return indexes;
+	}
+
+	/**
+	 * @return all indexes in ascending order
+	 */
+	public int[] sortedIndexes() {
+		int[] indexes = indexes();
+		Arrays.sort(indexes);
+		return indexes;
+	}
+
+	/**
+	 * adds shift to all indexes greater or equal startIndex. Only the shifted
+	 * entries are moved.
+	 */
+	public void shiftIndexes(int startIndex, int shift) {
+		shiftIndexes(startIndex, shift, null);
+	}
+
+	/**
+	 * like {@link #shiftIndexes(int, int)}, calls moved with the value and the
+	 * new index of each shifted entry
+	 */
+	public void shiftIndexes(int startIndex, int shift, ObjIntConsumer<? super E> moved) {
+		if (shift < 0) {
+			throw new IllegalArgumentException("negative shift " + shift);
+		}
+		if (shift == 0 || isEmpty()) {
+			return;
+		}
+		int[] shiftedIndexes = sortedIndexesFrom(startIndex);
+		reserve(shiftedIndexes.length);
+		// descending, so a shifted index never meets an index not shifted yet
+		for (int i = shiftedIndexes.length - 1; i >= 0; i--) {
+			move(slot(shiftedIndexes[i]), shiftedIndexes[i] + shift, moved);
+		}
+	}
+
+	/**
+	 * removes all indexes and moves the following indexes down, so they stay
+	 * contiguous. Only the following entries are moved.
+	 *
+	 * @return the removed entries
+	 */
+	public IndexMap<E> removeIndexes(Set<Integer> indexes) {
+		return removeIndexes(indexes, null);
+	}
+
+	/**
+	 * like {@link #removeIndexes(Set)}, calls moved with the value and the new
+	 * index of each following entry
+	 *
+	 * @return the removed entries
+	 */
+	public IndexMap<E> removeIndexes(Set<Integer> indexes, ObjIntConsumer<? super E> moved) {
+		IndexMap<E> removed = new IndexMap<>();
+		if (indexes.isEmpty() || isEmpty()) {
+			return removed;
+		}
+		int[] sortedIndexes = indexes.stream().mapToInt(Integer::intValue).sorted().toArray();
+		for (int index : sortedIndexes) {
+			int slot = slot(index);
+			if (slot >= 0) {
+				removed.insert(index, values[slot]);
+				remove(index);
+			}
+		}
+		int[] followingIndexes = sortedIndexesFrom(sortedIndexes[0] + 1);
+		reserve(followingIndexes.length);
+		// ascending, so a moved index never meets an index not moved yet
+		int removedBefore = 0;
+		for (int index : followingIndexes) {
+			while (removedBefore < sortedIndexes.length && sortedIndexes[removedBefore] < index) {
+				removedBefore++;
+			}
+			move(slot(index), index - removedBefore, moved);
+		}
+		return removed;
+	}
+
+	@SuppressWarnings("unchecked")
+	private E value(int slot) {
+		return (E) values[slot];
+	}
+
+	private int slot(int index) {
+		if (index < 0) {
+			return -1;
+		}
+		int mask = keys.length - 1;
+		for (int slot = hash(index) & mask;; slot = (slot + 1) & mask) {
+			int key = keys[slot];
+			if (key == index) {
+				return slot;
+			}
+			if (key == FREE) {
+				return -1;
+			}
+		}
+	}
+
+	private void insert(int index, Object value) {
+		if ((size + deleted + 1) * 4 > keys.length * 3) {
+			rehash();
+		}
+		int mask = keys.length - 1;
+		int slot = hash(index) & mask;
+		while (keys[slot] >= 0) {
+			slot = (slot + 1) & mask;
+		}
+		if (keys[slot] == DELETED) {
+			deleted--;
+		}
+		keys[slot] = index;
+		values[slot] = value;
+		link(slot);
+		size++;
+	}
+
+	private void rehash() {
+		rehash(size + 1);
+	}
+
+	private void rehash(int minSize) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		int[] oldAfter = after;
+		int oldHead = head;
+		allocate(capacity(minSize));
+		for (int slot = oldHead; slot != NONE; slot = oldAfter[slot]) {
+			insert(oldKeys[slot], oldValues[slot]);
+		}
+	}
+
+	/**
+	 * @return the indexes greater or equal startIndex in ascending order, found
+	 *         by a scan of the table without touching the values
+	 */
+	private int[] sortedIndexesFrom(int startIndex) {
+		int[] indexes = new int[size];
+		int count = 0;
+		for (int key : keys) {
+			if (key >= 0 && key >= startIndex) {
+				indexes[count++] = key;
+			}
+		}
+		indexes = Arrays.copyOf(indexes, count);
+		Arrays.sort(indexes);
+		return indexes;
+	}
+
+	/**
+	 * makes room for count moves, each of which may leave a deleted slot
+	 */
+	private void reserve(int count) {
+		if ((size + deleted + count) * 4 > keys.length * 3) {
+			rehash(size + count);
+		}
+	}
+
+	/**
+	 * moves the entry of the slot to a new index, at the same position in the
+	 * order. The new index must not be contained yet.
+	 */
+	private void move(int slot, int index, ObjIntConsumer<? super E> moved) {
+		int mask = keys.length - 1;
+		int newSlot = hash(index) & mask;
+		while (keys[newSlot] >= 0) {
+			newSlot = (newSlot + 1) & mask;
+		}
+		if (keys[newSlot] == DELETED) {
+			deleted--;
+		}
+		keys[newSlot] = index;
+		values[newSlot] = values[slot];
+		int previous = before[slot];
+		int next = after[slot];
+		before[newSlot] = previous;
+		after[newSlot] = next;
+		if (previous == NONE) {
+			head = newSlot;
+		} else {
+			after[previous] = newSlot;
+		}
+		if (next == NONE) {
+			tail = newSlot;
+		} else {
+			before[next] = newSlot;
+		}
+		keys[slot] = DELETED;
+		values[slot] = null;
+		deleted++;
+		if (moved != null) {
+			moved.accept(value(newSlot), index);
+		}
+	}
+
+	private void link(int slot) {
+		before[slot] = tail;
+		after[slot] = NONE;
+		if (tail == NONE) {
+			head = slot;
+		} else {
+			after[tail] = slot;
+		}
+		tail = slot;
+	}
+
+	private void unlink(int slot) {
+		int previous = before[slot];
+		int next = after[slot];
+		if (previous == NONE) {
+			head = next;
+		} else {
+			after[previous] = next;
+		}
+		if (next == NONE) {
+			tail = previous;
+		} else {
+			before[next] = previous;
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		Arrays.fill(keys, FREE);
+		values = new Object[capacity];
+		before = new int[capacity];
+		after = new int[capacity];
+		head = NONE;
+		tail = NONE;
+		size = 0;
+		deleted = 0;
+	}
+
+	private static int capacity(int size) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * 3 < size * 8) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static int hash(int index) {
+		int hash = index * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+}
@@ -6,17 +6,18 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 
@@ -32,6 +33,8 @@ import gate.creole.metadata.CreoleParameter;
 import gate.creole.metadata.CreoleResource;
 import gate.creole.metadata.Optional;
 import gate.util.GateRuntimeException;
+import gate.virtualcorpus.jfr.FlightRecorder;
+import gate.virtualcorpus.jfr.ResultSetReexecuteEvent;
 
 /**
  * A Corpus LR that mirrors documents stored in a JDBC database table field.
@@ -52,9 +55,14 @@ public class JdbcCorpus extends VirtualCorpus {
 	private static final long serialVersionUID = -8485133333415382902L;
 	private static Logger logger = Logger.getLogger(JdbcCorpus.class);
 
-	private static final String COUNT_ID_SQL = "SELECT COUNT(${idColumn}) FROM ${tableName}";
-	private static final String SELECT_ID_SQL = "SELECT ${idColumn} FROM ${tableName} ORDER BY ${idColumn} ASC";
-	private static final String SELECT_VALUES_SQL = "SELECT ${idColumn}, ${columns} FROM ${tableName} ORDER BY ${idColumn} ASC";
+	private static final String COUNT_ID_SQL = "SELECT COUNT(${idColumn}) FROM ${tableName}${shardCondition}";
+	private static final String ESTIMATE_COUNT_POSTGRESQL_SQL = "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)";
+	private static final String ESTIMATE_COUNT_MYSQL_SQL = "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+	private static final String SELECT_ID_SQL = "SELECT ${idColumn} FROM ${tableName}${shardCondition} ORDER BY ${idColumn} ASC";
+	private static final String SELECT_NAMES_SQL = "SELECT ${idColumn}, ${nameColumns} FROM ${tableName}${shardCondition} ORDER BY ${idColumn} ASC";
+	private static final String SELECT_FEATURES_SQL = "SELECT ${idColumn}, ${featureColumns} FROM ${tableName}${shardCondition} ORDER BY ${idColumn} ASC";
+	private static final String SELECT_VALUES_SQL = "SELECT ${idColumn}, ${columns} FROM ${tableName}${shardCondition} ORDER BY ${idColumn} ASC";
+	private static final String SELECT_ID_AT_ROW_SQL = "SELECT ${idColumn} FROM ${tableName} ORDER BY ${idColumn} ASC LIMIT 1 OFFSET ?";
 	private static final String UPDATE_VALUES_SQL = "UPDATE ${tableName} SET ${column} = ? WHERE ${idColumn} = ?";
 
 	private static final String ALL_COLUMNS = "*";
@@ -93,15 +101,30 @@ public class JdbcCorpus extends VirtualCorpus {
 	private transient Map<String, String> exportColumnMapping;
 
 	private transient Connection connection;
+	private transient Properties connectionProperties;
 	private transient PreparedStatement idStatement;
 	private transient ResultSet idResultSet;
+	private transient PreparedStatement namesStatement;
+	private transient ResultSet namesResultSet;
+	private transient PreparedStatement featuresStatement;
+	private transient ResultSet featuresResultSet;
 	private transient PreparedStatement valuesStatement;
 	private transient ResultSet valuesResultSet;
 	private transient Map<String, PreparedStatement> updateStatements;
-	private transient Map<ResultSet, Integer> rowsSelectCounts = new HashMap<>();
+	private transient Map<ResultSet, Integer> rowsSelectCounts = new ConcurrentHashMap<>();
 	private transient Integer updateCount = 0;
+	private transient String shardCondition = "";
+	private transient List<Object> shardParameters = new ArrayList<>();
+	private transient ThreadLocal<LoadingConnection> loadingConnection;
+	private transient List<LoadingConnection> loadingConnections;
 
-	private Map<Integer, Object> loadedIds = new HashMap<>();
+	/**
+	 * incremented on every update, so result sets of loading connections are
+	 * executed again after an update
+	 */
+	private transient volatile int updateVersion;
+
+	private Map<Integer, Object> loadedIds = new ConcurrentHashMap<>();
 
 	@CreoleParameter(comment = "The JDBC driver to use", defaultValue = "org.sqlite.JDBC")
 	public void setJdbcDriver(String driver) {
@@ -364,6 +387,7 @@ public class JdbcCorpus extends VirtualCorpus {
 	public Resource init() throws ResourceInstantiationException {
 		checkValidMimeType(mimeType, false);
 		checkValidExporterClassName(exporterClassName, false);
+		checkShard();
 		if (!hasValue(tableName)) {
 			throw new ResourceInstantiationException("tableName must not be empty");
 		}
@@ -394,6 +418,7 @@ public class JdbcCorpus extends VirtualCorpus {
 				properties.put("characterEncoding", encoding);
 			}
 			connection = DriverManager.getConnection(jdbcUrl, properties);
+			connectionProperties = properties;
 			if (autoCommit != null) {
 				connection.setAutoCommit(autoCommit);
 			}
@@ -472,6 +497,12 @@ public class JdbcCorpus extends VirtualCorpus {
 		this.columns.addAll(featureColumns);
 		this.columns.addAll(exportColumnMapping.values());
 
+		try {
+			initShard();
+		} catch (SQLException e) {
+			throw new ResourceInstantiationException("Could not select shard", e);
+		}
+
 		try {
 			if (!connection.getMetaData().supportsResultSetType(resultSetType)) {
 				throw new ResourceInstantiationException("resultSetType is not supported: " + resultSetType);
@@ -484,6 +515,14 @@ public class JdbcCorpus extends VirtualCorpus {
 					ResultSet.CONCUR_READ_ONLY);
 			valuesStatement = connection.prepareStatement(prepareQuery(SELECT_VALUES_SQL), resultSetType,
 					resultSetConcurrency);
+			if (!nameColumns.isEmpty()) {
+				namesStatement = connection.prepareStatement(prepareQuery(SELECT_NAMES_SQL), resultSetType,
+						ResultSet.CONCUR_READ_ONLY);
+			}
+			if (!featureColumns.isEmpty()) {
+				featuresStatement = connection.prepareStatement(prepareQuery(SELECT_FEATURES_SQL), resultSetType,
+						ResultSet.CONCUR_READ_ONLY);
+			}
 			if (!getReadonlyDocuments() && valuesStatement.getResultSetConcurrency() != ResultSet.CONCUR_UPDATABLE) {
 				if (hasValue(exportColumnSuffix)) {
 					updateStatements = prepareStatements(UPDATE_VALUES_SQL, contentColumns, exportColumnSuffix);
@@ -494,15 +533,34 @@ public class JdbcCorpus extends VirtualCorpus {
 					updateStatements.putAll(prepareStatements(UPDATE_VALUES_SQL, featureColumns));
 				}
 			}
+			setShardParameters(idStatement);
+			setShardParameters(valuesStatement);
+			if (namesStatement != null) {
+				setShardParameters(namesStatement);
+			}
+			if (featuresStatement != null) {
+				setShardParameters(featuresStatement);
+			}
 			idStatement.setFetchDirection(fetchDirection);
 			idStatement.setFetchSize(fetchIds);
 			valuesStatement.setFetchDirection(fetchDirection);
 			valuesStatement.setFetchSize(fetchRows);
 			idResultSet = idStatement.executeQuery();
 			valuesResultSet = valuesStatement.executeQuery();
+			if (namesStatement != null) {
+				namesStatement.setFetchDirection(fetchDirection);
+				namesStatement.setFetchSize(fetchIds);
+				namesResultSet = namesStatement.executeQuery();
+			}
+			if (featuresStatement != null) {
+				featuresStatement.setFetchDirection(fetchDirection);
+				featuresStatement.setFetchSize(fetchIds);
+			}
 		} catch (SQLException e) {
 			throw new ResourceInstantiationException("Could not prepare statement", e);
 		}
+		loadingConnection = new ThreadLocal<>();
+		loadingConnections = Collections.synchronizedList(new ArrayList<>());
 
 		initVirtualCorpus();
 
@@ -511,6 +569,7 @@ public class JdbcCorpus extends VirtualCorpus {
 
 	@Override
 	public void cleanup() {
+		cleanupVirtualCorpus();
 		try {
 			if (!getReadonlyDocuments() && valuesResultSet.getConcurrency() == ResultSet.CONCUR_UPDATABLE) {
 				valuesResultSet.updateRow();
@@ -521,20 +580,126 @@ public class JdbcCorpus extends VirtualCorpus {
 				}
 				connection.close();
 			}
+			if (loadingConnections != null) {
+				synchronized (loadingConnections) {
+					for (LoadingConnection loadingConnection : loadingConnections) {
+						loadingConnection.close();
+					}
+					loadingConnections.clear();
+				}
+			}
 		} catch (SQLException e) {
 			throw new GateRuntimeException(e);
 		}
 	}
 
+	/**
+	 * restricts all queries to the id range of the shard, which is bounded by the
+	 * ids of the first rows of this and the next shard
+	 */
+	private void initShard() throws SQLException {
+		shardCondition = "";
+		shardParameters = new ArrayList<>();
+		if (!isSharded()) {
+			return;
+		}
+		int rowCount = countRows(connection);
+		int[] shardRows = shardRange(rowCount);
+		List<String> conditions = new ArrayList<>();
+		if (shardRows[0] >= rowCount) {
+			conditions.add("1 = 0");
+		} else {
+			if (shardRows[0] > 0) {
+				conditions.add("${idColumn} >= ?");
+				shardParameters.add(selectIdAtRow(shardRows[0]));
+			}
+			if (shardRows[1] < rowCount) {
+				conditions.add("${idColumn} < ?");
+				shardParameters.add(selectIdAtRow(shardRows[1]));
+			}
+		}
+		if (!conditions.isEmpty()) {
+			shardCondition = " WHERE " + String.join(" AND ", conditions);
+		}
+	}
+
+	private Object selectIdAtRow(int row) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(prepareQuery(SELECT_ID_AT_ROW_SQL))) {
+			statement.setInt(1, row);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				resultSet.next();
+				return resultSet.getObject(1);
+			}
+		}
+	}
+
+	private void setShardParameters(PreparedStatement statement) throws SQLException {
+		for (int i = 0; i < shardParameters.size(); i++) {
+			statement.setObject(i + 1, shardParameters.get(i));
+		}
+	}
+
 	@Override
-	protected int loadSize() throws Exception {
-		try (Statement statement = connection.createStatement()) {
-			ResultSet resultSet = statement.executeQuery(prepareQuery(COUNT_ID_SQL));
+	protected int loadSize() throws SQLException {
+		int rowCount;
+		if (holdsBackendLock()) {
+			rowCount = countRows(connection);
+		} else {
+			try (Connection countConnection = DriverManager.getConnection(jdbcUrl, connectionProperties)) {
+				rowCount = countRows(countConnection);
+			}
+		}
+		int columnCount = contentColumnList.size();
+		int size = rowCount * columnCount;
+		return size;
+	}
+
+	private int countRows(Connection connection) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(prepareQuery(COUNT_ID_SQL))) {
+			setShardParameters(statement);
+			ResultSet resultSet = statement.executeQuery();
 			resultSet.next();
-			int rowCount = resultSet.getInt(1);
-			int columnCount = contentColumnList.size();
-			int size = rowCount * columnCount;
-			return size;
+			return resultSet.getInt(1);
+		}
+	}
+
+	/**
+	 * the exact size is counted on a connection of its own, sizes are only
+	 * estimated for database servers
+	 */
+	@Override
+	protected boolean isConcurrentSizeLoadingSupported() {
+		return true;
+	}
+
+	/**
+	 * uses the table statistics of PostgreSQL and MySQL, which are updated by
+	 * ANALYZE
+	 */
+	@Override
+	protected Integer loadEstimatedSize() throws Exception {
+		String productName = connection.getMetaData().getDatabaseProductName();
+		String estimateQuery;
+		if ("PostgreSQL".equalsIgnoreCase(productName)) {
+			estimateQuery = ESTIMATE_COUNT_POSTGRESQL_SQL;
+		} else if ("MySQL".equalsIgnoreCase(productName) || "MariaDB".equalsIgnoreCase(productName)) {
+			estimateQuery = ESTIMATE_COUNT_MYSQL_SQL;
+		} else {
+			return null;
+		}
+		try (PreparedStatement statement = connection.prepareStatement(estimateQuery)) {
+			statement.setString(1, tableName);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				if (!resultSet.next()) {
+					return null;
+				}
+				long rowCount = resultSet.getLong(1);
+				if (resultSet.wasNull() || rowCount < 0 || rowCount * contentColumnList.size() > Integer.MAX_VALUE) {
+					return null;
+				}
+				int[] shardRows = shardRange((int) rowCount);
+				return (shardRows[1] - shardRows[0]) * contentColumnList.size();
+			}
 		}
 	}
 
@@ -553,13 +718,155 @@ public class JdbcCorpus extends VirtualCorpus {
 
 	}
 
+	@Override
+	protected boolean supportsBulkDocumentNames() {
+		return true;
+	}
+
+	/**
+	 * reads the names row by row from a separate result set, so the cursor of
+	 * the values result set is not moved
+	 */
+	@Override
+	protected List<String> loadDocumentNames(int fromIndex, int toIndex) throws Exception {
+		List<String> documentNames = new ArrayList<>(toIndex - fromIndex);
+		if (fromIndex >= toIndex) {
+			return documentNames;
+		}
+		ResultSet resultSet;
+		if (nameColumnList.isEmpty()) {
+			idResultSet = moveResultSetToRow(idStatement, idResultSet, row(fromIndex));
+			resultSet = idResultSet;
+		} else {
+			namesResultSet = moveResultSetToRow(namesStatement, namesResultSet, row(fromIndex));
+			resultSet = namesResultSet;
+		}
+		Integer currentRow = row(fromIndex);
+		String[] ids = getNameValues(resultSet);
+		for (int index = fromIndex; index < toIndex; index++) {
+			Integer row = row(index);
+			if (!row.equals(currentRow)) {
+				if (!resultSet.next()) {
+					throw new IllegalStateException("no row " + row + " in result set");
+				}
+				currentRow = row;
+				ids = getNameValues(resultSet);
+			}
+			documentNames.add(buildDocumentName(column(index), ids));
+		}
+		return documentNames;
+	}
+
+	/**
+	 * concurrent loads read from a connection of their own per thread, which
+	 * sees only committed updates. So loads are only concurrent, if updates are
+	 * committed at once, i.e. with autoCommit and without updatable result sets.
+	 * The jdbcUrl must open the same database for every connection, which is not
+	 * the case for in-memory databases.
+	 */
+	@Override
+	protected boolean isConcurrentLoadingSupported() {
+		return getReadonlyDocuments() || ((autoCommit == null || autoCommit)
+				&& resultSetConcurrency != ResultSet.CONCUR_UPDATABLE);
+	}
+
 	@Override
 	protected Document loadDocument(int index) throws Exception {
+		if (!holdsBackendLock()) {
+			return loadingConnection().loadDocument(index);
+		}
 		Integer row = row(index);
-		String contentColumn = column(index);
-
 		valuesResultSet = moveResultSetToRow(valuesStatement, valuesResultSet, row);
+		return createDocument(valuesResultSet, row, column(index));
+	}
+
+	/**
+	 * @return the loading connection of the current thread, which is opened on
+	 *         first use and closed on cleanup
+	 */
+	private LoadingConnection loadingConnection() throws SQLException {
+		LoadingConnection loadingConnection = this.loadingConnection.get();
+		if (loadingConnection == null) {
+			loadingConnection = new LoadingConnection();
+			this.loadingConnection.set(loadingConnection);
+			loadingConnections.add(loadingConnection);
+		}
+		return loadingConnection;
+	}
+
+	/**
+	 * a connection with its own values result set, used by one thread to load
+	 * documents without the backend lock
+	 */
+	private class LoadingConnection {
+		private final Connection connection;
+		private final PreparedStatement valuesStatement;
+		private ResultSet valuesResultSet;
+		private int resultSetUpdateVersion;
+
+		public LoadingConnection() throws SQLException {
+			connection = DriverManager.getConnection(jdbcUrl, connectionProperties);
+			try {
+				valuesStatement = connection.prepareStatement(prepareQuery(SELECT_VALUES_SQL), resultSetType,
+						ResultSet.CONCUR_READ_ONLY);
+				setShardParameters(valuesStatement);
+				valuesStatement.setFetchDirection(fetchDirection);
+				valuesStatement.setFetchSize(fetchRows);
+				resultSetUpdateVersion = updateVersion;
+				valuesResultSet = valuesStatement.executeQuery();
+			} catch (SQLException e) {
+				connection.close();
+				throw e;
+			}
+		}
 
+		public Document loadDocument(int index) throws Exception {
+			Integer row = row(index);
+			if (resultSetUpdateVersion != updateVersion) {
+				// the result set may not show the update
+				valuesResultSet.close();
+				resultSetUpdateVersion = updateVersion;
+			}
+			valuesResultSet = moveResultSetToRow(valuesStatement, valuesResultSet, row);
+			return createDocument(valuesResultSet, row, column(index));
+		}
+
+		public void close() throws SQLException {
+			connection.close();
+		}
+	}
+
+	/**
+	 * reads the rows of the range by moving the values result set forward, so a
+	 * range is read with a single positioning of the cursor. Updatable result
+	 * sets are moved row by row to write pending updates.
+	 */
+	@Override
+	protected List<Document> loadDocuments(int fromIndex, int toIndex) throws Exception {
+		if (fromIndex >= toIndex || resultSetConcurrency == ResultSet.CONCUR_UPDATABLE) {
+			return super.loadDocuments(fromIndex, toIndex);
+		}
+		List<Document> documents = new ArrayList<>(toIndex - fromIndex);
+		Integer currentRow = row(fromIndex);
+		valuesResultSet = moveResultSetToRow(valuesStatement, valuesResultSet, currentRow);
+		for (int index = fromIndex; index < toIndex; index++) {
+			Integer row = row(index);
+			if (!row.equals(currentRow)) {
+				if (!valuesResultSet.next()) {
+					throw new IllegalStateException("no row " + row + " in result set");
+				}
+				currentRow = row;
+			}
+			documents.add(createDocument(valuesResultSet, row, column(index)));
+		}
+		return documents;
+	}
+
+	/**
+	 * creates the document of a content column from the current row of a values
+	 * result set
+	 */
+	private Document createDocument(ResultSet valuesResultSet, Integer row, String contentColumn) throws Exception {
 		Object id = valuesResultSet.getObject(idColumn);
 		loadedIds.putIfAbsent(row, id);
 
@@ -580,22 +887,13 @@ public class JdbcCorpus extends VirtualCorpus {
 		if (content == null) {
 			content = "";
 		} else if (content instanceof byte[]) {
+			recordBytesRead(((byte[]) content).length);
 			content = new String((byte[]) content, encoding);
-		} else if (!(content instanceof String)) {
+		} else {
 			content = content.toString();
+			recordBytesRead(((String) content).length());
 		}
-		FeatureMap features = Factory.newFeatureMap();
-		features.put(GateConstants.THROWEX_FORMAT_PROPERTY_NAME, true);
-		for (String featureColumn : featureColumnList) {
-			Object feature = valuesResultSet.getObject(featureColumn);
-			features.put(featureKeyPrefix + featureColumn, feature);
-		}
-		if (hasValue(idFeatureName)) {
-			features.put(featureKeyPrefix + idFeatureName, id);
-		}
-		if (hasValue(contentColumnFeatureName)) {
-			features.put(featureKeyPrefix + contentColumnFeatureName, contentColumn);
-		}
+		FeatureMap features = createFeatures(valuesResultSet, id, contentColumn);
 		FeatureMap params = Factory.newFeatureMap();
 		params.put(Document.DOCUMENT_STRING_CONTENT_PARAMETER_NAME, content);
 		params.put(Document.DOCUMENT_ENCODING_PARAMETER_NAME, encoding);
@@ -609,37 +907,92 @@ public class JdbcCorpus extends VirtualCorpus {
 		return (Document) Factory.createResource(DocumentImpl.class.getName(), params, features, documentName);
 	}
 
-	@Override
-	protected void addDocuments(int index, Collection<? extends Document> documents) throws Exception {
-		throw new UnsupportedOperationException();
+	/**
+	 * creates the features of a document from the feature columns of the current
+	 * row of the result set
+	 */
+	private FeatureMap createFeatures(ResultSet resultSet, Object id, String contentColumn) throws SQLException {
+		FeatureMap features = Factory.newFeatureMap();
+		features.put(GateConstants.THROWEX_FORMAT_PROPERTY_NAME, true);
+		for (String featureColumn : featureColumnList) {
+			Object feature = resultSet.getObject(featureColumn);
+			features.put(featureKeyPrefix + featureColumn, feature);
+		}
+		if (hasValue(idFeatureName)) {
+			features.put(featureKeyPrefix + idFeatureName, id);
+		}
+		if (hasValue(contentColumnFeatureName)) {
+			features.put(featureKeyPrefix + contentColumnFeatureName, contentColumn);
+		}
+		return features;
 	}
 
+	/**
+	 * reads the feature columns from a separate result set, so the content
+	 * columns are not read
+	 */
 	@Override
-	protected void setDocument(int index, Document document) throws Exception {
+	protected FeatureMap loadDocumentFeatures(int index) throws Exception {
 		Integer row = row(index);
-		String column = column(index);
-
-		if (hasValue(exportColumnSuffix)) {
-			column = exportColumnMapping.get(column);
+		if (featuresStatement == null) {
+			return createFeatures(null, getId(row), column(index));
 		}
+		moveFeaturesResultSetToRow(row);
+		Object id = featuresResultSet.getObject(idColumn);
+		loadedIds.putIfAbsent(row, id);
+		return createFeatures(featuresResultSet, id, column(index));
+	}
 
-		DocumentExporter exporter = null;
-		if (hasValue(exporterClassName)) {
-			exporter = getExporterForClassName(exporterClassName);
+	/**
+	 * reads the feature columns of the range by moving the features result set
+	 * forward, like {@link #loadDocuments(int, int)}
+	 */
+	@Override
+	protected List<FeatureMap> loadDocumentFeatures(int fromIndex, int toIndex) throws Exception {
+		if (fromIndex >= toIndex || featuresStatement == null) {
+			return super.loadDocumentFeatures(fromIndex, toIndex);
 		}
-		if (exporter == null && hasValue(mimeType)) {
-			exporter = getExporterForMimeType(mimeType);
+		List<FeatureMap> documentFeatures = new ArrayList<>(toIndex - fromIndex);
+		Integer currentRow = row(fromIndex);
+		moveFeaturesResultSetToRow(currentRow);
+		Object id = featuresResultSet.getObject(idColumn);
+		loadedIds.putIfAbsent(currentRow, id);
+		for (int index = fromIndex; index < toIndex; index++) {
+			Integer row = row(index);
+			if (!row.equals(currentRow)) {
+				if (!featuresResultSet.next()) {
+					throw new IllegalStateException("no row " + row + " in result set");
+				}
+				currentRow = row;
+				id = featuresResultSet.getObject(idColumn);
+				loadedIds.putIfAbsent(row, id);
+			}
+			documentFeatures.add(createFeatures(featuresResultSet, id, column(index)));
 		}
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-		if (exporter != null) {
-			export(outputStream, document, exporter);
-		} else if (hasValue(encoding)) {
-			export(outputStream, document, encoding);
-		} else {
-			export(outputStream, document);
+		return documentFeatures;
+	}
+
+	/**
+	 * the features result set is only opened when features are loaded without
+	 * documents
+	 */
+	private void moveFeaturesResultSetToRow(Integer row) throws SQLException {
+		if (featuresResultSet == null) {
+			featuresResultSet = featuresStatement.executeQuery();
 		}
+		featuresResultSet = moveResultSetToRow(featuresStatement, featuresResultSet, row);
+	}
 
-		byte[] bytes = outputStream.toByteArray();
+	@Override
+	protected void addDocuments(int index, Collection<? extends Document> documents) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	protected void setDocument(int index, Document document) throws Exception {
+		Integer row = row(index);
+		String column = updateColumn(index);
+		byte[] bytes = exportDocument(document);
 
 		if (valuesResultSet.getConcurrency() == ResultSet.CONCUR_UPDATABLE) {
 			valuesResultSet = moveResultSetToRow(valuesStatement, valuesResultSet, row);
@@ -666,6 +1019,42 @@ public class JdbcCorpus extends VirtualCorpus {
 			}
 		}
 		commitConnection();
+		updateVersion++;
+	}
+
+	/**
+	 * writes all documents with one batch per updated column, updatable result
+	 * sets are updated row by row
+	 */
+	@Override
+	protected void setDocuments(Map<Integer, Document> documents) throws Exception {
+		if (valuesStatement.getResultSetConcurrency() == ResultSet.CONCUR_UPDATABLE) {
+			super.setDocuments(documents);
+			return;
+		}
+		Set<PreparedStatement> batchStatements = new LinkedHashSet<>();
+		for (int index : documents.keySet()) {
+			PreparedStatement updateStatement = updateStatements.get(updateColumn(index));
+			updateStatement.setBytes(1, exportDocument(documents.get(index)));
+			updateStatement.setObject(2, getId(row(index)));
+			updateStatement.addBatch();
+			batchStatements.add(updateStatement);
+		}
+		for (PreparedStatement updateStatement : batchStatements) {
+			updateStatement.executeBatch();
+		}
+		if (maxUpdates != null) {
+			updateCount += documents.size();
+		}
+
+		if (!connection.getMetaData().othersUpdatesAreVisible(idStatement.getResultSetType())) {
+			idResultSet.close();
+		}
+		if (!connection.getMetaData().othersUpdatesAreVisible(valuesStatement.getResultSetType())) {
+			valuesResultSet.close();
+		}
+		commitConnection();
+		updateVersion++;
 	}
 
 	@Override
@@ -713,6 +1102,34 @@ public class JdbcCorpus extends VirtualCorpus {
 		return id;
 	}
 
+	private String updateColumn(int index) {
+		String column = column(index);
+		if (hasValue(exportColumnSuffix)) {
+			column = exportColumnMapping.get(column);
+		}
+		return column;
+	}
+
+	private byte[] exportDocument(Document document) {
+		DocumentExporter exporter = null;
+		if (hasValue(exporterClassName)) {
+			exporter = getExporterForClassName(exporterClassName);
+		}
+		if (exporter == null && hasValue(mimeType)) {
+			exporter = getExporterForMimeType(mimeType);
+		}
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		if (exporter != null) {
+			export(outputStream, document, exporter);
+		} else if (hasValue(encoding)) {
+			export(outputStream, document, encoding);
+		} else {
+			export(outputStream, document);
+		}
+		recordBytesWritten(outputStream.size());
+		return outputStream.toByteArray();
+	}
+
 	private String buildDocumentName(String contentColumn, String... ids) {
 		String name = String.join(" ", ids);
 		if (contentColumnList.size() > 1) {
@@ -721,6 +1138,13 @@ public class JdbcCorpus extends VirtualCorpus {
 		return name;
 	}
 
+	private String[] getNameValues(ResultSet resultSet) throws SQLException {
+		if (nameColumnList.isEmpty()) {
+			return new String[] { resultSet.getObject(1).toString() };
+		}
+		return getStringValues(resultSet, nameColumnList);
+	}
+
 	private String[] getStringValues(ResultSet resultSet, List<String> columns) throws SQLException {
 		List<String> values = new ArrayList<>();
 		for (String column : columns) {
@@ -738,14 +1162,17 @@ public class JdbcCorpus extends VirtualCorpus {
 	}
 
 	private String prepareQuery(String query) {
-		query = query.replaceAll(Pattern.quote("${tableName}"), tableName);
-		query = query.replaceAll(Pattern.quote("${idColumn}"), idColumn);
-		query = query.replaceAll(Pattern.quote("${columns}"), String.join(",", this.columns));
+		query = query.replace("${shardCondition}", shardCondition);
+		query = query.replace("${tableName}", tableName);
+		query = query.replace("${idColumn}", idColumn);
+		query = query.replace("${columns}", String.join(",", this.columns));
+		query = query.replace("${nameColumns}", String.join(",", this.nameColumnList));
+		query = query.replace("${featureColumns}", String.join(",", this.featureColumnList));
 		return query;
 	}
 
 	private PreparedStatement prepareStatement(String query, String column) throws SQLException {
-		String columnQuery = query.replaceAll(Pattern.quote("${column}"), column);
+		String columnQuery = query.replace("${column}", column);
 		PreparedStatement statement = connection.prepareStatement(prepareQuery(columnQuery));
 		return statement;
 	}
@@ -784,7 +1211,7 @@ public class JdbcCorpus extends VirtualCorpus {
 			if (maxRowsSelected != null) {
 				rowsSelectCounts.remove(resultSet);
 			}
-			resultSet = statement.executeQuery();
+			resultSet = executeQuery(statement, 0, row, "closed");
 			reopened = true;
 		}
 		int currentRow = resultSet.getRow();
@@ -800,7 +1227,7 @@ public class JdbcCorpus extends VirtualCorpus {
 				if (maxRowsSelected != null) {
 					rowsSelectCounts.remove(resultSet);
 				}
-				resultSet = statement.executeQuery();
+				resultSet = executeQuery(statement, currentRow, row, "backwards");
 				reopened = true;
 			}
 			if (maxRowsSelected != null) {
@@ -808,7 +1235,7 @@ public class JdbcCorpus extends VirtualCorpus {
 				if (rowsSelectCount >= maxRowsSelected) {
 					resultSet.close();
 					rowsSelectCounts.remove(resultSet);
-					resultSet = statement.executeQuery();
+					resultSet = executeQuery(statement, currentRow, row, "maxRowsSelected");
 					reopened = true;
 					rowsSelectCount = 0;
 				}
@@ -819,6 +1246,28 @@ public class JdbcCorpus extends VirtualCorpus {
 		return resultSet;
 	}
 
+	/**
+	 * executes the query of a result set again, recorded as JFR event
+	 */
+	private ResultSet executeQuery(PreparedStatement statement, int fromRow, int toRow, String reason)
+			throws SQLException {
+		ResultSetReexecuteEvent event = null;
+		if (FlightRecorder.AVAILABLE) {
+			event = new ResultSetReexecuteEvent();
+			event.begin();
+		}
+		ResultSet resultSet = statement.executeQuery();
+		if (event != null && event.shouldCommit()) {
+			event.corpus = getName();
+			event.table = tableName;
+			event.fromRow = fromRow;
+			event.toRow = toRow;
+			event.reason = reason;
+			event.commit();
+		}
+		return resultSet;
+	}
+
 	private void commitConnection() throws SQLException {
 		if (!connection.getAutoCommit() && maxUpdates != null) {
 			if (updateCount >= maxUpdates) {
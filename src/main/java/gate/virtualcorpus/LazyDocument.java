@@ -0,0 +1,149 @@
+package gate.virtualcorpus;
+
+import java.io.ObjectStreamException;
+import java.util.Map;
+import java.util.Set;
+
+import gate.Annotation;
+import gate.AnnotationSet;
+import gate.DocumentContent;
+import gate.corpora.DocumentImpl;
+import gate.creole.metadata.CreoleResource;
+import gate.util.InvalidOffsetException;
+
+/**
+ * A document returned by a {@link VirtualCorpus} with lazyDocuments set. Its
+ * name and features are loaded with the document, content and annotations are
+ * loaded from the backend on first access. After that the document behaves like
+ * a {@link DocumentImpl}.
+ *
+ * The document can only be materialized while it is loaded in its corpus.
+ */
+@CreoleResource(name = "LazyDocument", interfaceName = "gate.Document", comment = "A document of a virtual corpus, whose content is loaded on first access", isPrivate = true)
+public class LazyDocument extends DocumentImpl {
+	private static final long serialVersionUID = -3125409178946250412L;
+
+	private transient VirtualCorpus corpus;
+	private transient boolean materializing;
+
+	void setCorpus(VirtualCorpus corpus) {
+		this.corpus = corpus;
+	}
+
+	/**
+	 * @return true, if content and annotations are loaded
+	 */
+	public boolean isMaterialized() {
+		return corpus == null;
+	}
+
+	/**
+	 * loads content and annotations from the corpus, if not done yet
+	 */
+	public void materialize() {
+		VirtualCorpus corpus = this.corpus;
+		if (corpus == null || materializing) {
+			return;
+		}
+		materializing = true;
+		try {
+			corpus.materializeDocument(this);
+			this.corpus = null;
+		} finally {
+			materializing = false;
+		}
+	}
+
+	/**
+	 * the document is always serialized with its content
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		materialize();
+		return this;
+	}
+
+	@Override
+	public DocumentContent getContent() {
+		materialize();
+		return super.getContent();
+	}
+
+	@Override
+	public void setContent(DocumentContent content) {
+		materialize();
+		super.setContent(content);
+	}
+
+	@Override
+	public void edit(Long start, Long end, DocumentContent replacement) throws InvalidOffsetException {
+		materialize();
+		super.edit(start, end, replacement);
+	}
+
+	@Override
+	public AnnotationSet getAnnotations() {
+		materialize();
+		return super.getAnnotations();
+	}
+
+	@Override
+	public AnnotationSet getAnnotations(String name) {
+		materialize();
+		return super.getAnnotations(name);
+	}
+
+	@Override
+	public Map<String, AnnotationSet> getNamedAnnotationSets() {
+		materialize();
+		return super.getNamedAnnotationSets();
+	}
+
+	@Override
+	public Set<String> getAnnotationSetNames() {
+		materialize();
+		return super.getAnnotationSetNames();
+	}
+
+	@Override
+	public void removeAnnotationSet(String name) {
+		materialize();
+		super.removeAnnotationSet(name);
+	}
+
+	@Override
+	public String toXml() {
+		materialize();
+		return super.toXml();
+	}
+
+	@Override
+	public String toXml(Set<Annotation> annotations) {
+		materialize();
+		return super.toXml(annotations);
+	}
+
+	@Override
+	public String toXml(Set<Annotation> annotations, boolean includeFeatures) {
+		materialize();
+		return super.toXml(annotations, includeFeatures);
+	}
+
+	@Override
+	public Integer getNextAnnotationId() {
+		materialize();
+		return super.getNextAnnotationId();
+	}
+
+	@Override
+	public Integer peakAtNextAnnotationId() {
+		materialize();
+		return super.peakAtNextAnnotationId();
+	}
+
+	@Override
+	public Integer getNextNodeId() {
+		materialize();
+		return super.getNextNodeId();
+	}
+
+}
@@ -0,0 +1,61 @@
+package gate.virtualcorpus;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The state of a {@link VirtualCorpus} stored on cleanup, so the next init can
+ * skip the expensive work of the backend, like listing directories.
+ *
+ * The manifest is only valid for the backend state described by its
+ * fingerprint, which the backend computes cheaply, e.g. from the modification
+ * times of its directories.
+ */
+final class Manifest implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	final String fingerprint;
+	final int size;
+
+	/**
+	 * cached document names by index, least recently used first
+	 */
+	final LinkedHashMap<Integer, String> documentNames;
+
+	/**
+	 * backend specific state, see {@link VirtualCorpus#getManifestState()}
+	 */
+	final Serializable state;
+
+	Manifest(String fingerprint, int size, LinkedHashMap<Integer, String> documentNames, Serializable state) {
+		this.fingerprint = fingerprint;
+		this.size = size;
+		this.documentNames = documentNames;
+		this.state = state;
+	}
+
+	static Manifest read(Path file) throws IOException {
+		try (ObjectInputStream in = new ObjectInputStream(
+				new BufferedInputStream(new InflaterInputStream(Files.newInputStream(file))))) {
+			return (Manifest) in.readObject();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException(file + " is not a manifest file", e);
+		}
+	}
+
+	void write(Path file) throws IOException {
+		AtomicFiles.write(file, out -> {
+			ObjectOutputStream objectOut = new ObjectOutputStream(out);
+			objectOut.writeObject(this);
+			objectOut.flush();
+		});
+	}
+
+}
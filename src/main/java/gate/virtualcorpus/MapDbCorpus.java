@@ -8,6 +8,7 @@ import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -19,6 +20,7 @@ import org.mapdb.DBMaker.Maker;
 import org.mapdb.Serializer;
 
 import gate.Document;
+import gate.FeatureMap;
 import gate.Resource;
 import gate.creole.ResourceInstantiationException;
 import gate.creole.metadata.CreoleParameter;
@@ -34,6 +36,7 @@ public class MapDbCorpus extends VirtualCorpus {
 	protected static final String DOCUMENTSSIZE_MAPNAME = "documentsSize";
 	protected static final String DOCUMENTNAMES_MAPNAME = "documentNames";
 	protected static final String DOCUMENTBYTES_MAPNAME = "documentBytes";
+	protected static final String DOCUMENTORDER_MAPNAME = "documentOrder";
 
 	private URL mapDbFile;
 	private Boolean compressDocuments;
@@ -42,6 +45,9 @@ public class MapDbCorpus extends VirtualCorpus {
 	private transient org.mapdb.Atomic.Integer size;
 	private transient Map<Integer, byte[]> documentBytes;
 	private transient Map<Integer, String> documentNames;
+	private transient DocumentOrder documentOrder;
+	private transient int firstIndex;
+	private transient int shardSize;
 
 	@Override
 	@Optional
@@ -89,6 +95,7 @@ public class MapDbCorpus extends VirtualCorpus {
 
 	@Override
 	public Resource init() throws ResourceInstantiationException {
+		checkShard();
 		initMapDb();
 		initVirtualCorpus();
 		return super.init();
@@ -112,10 +119,17 @@ public class MapDbCorpus extends VirtualCorpus {
 		size = mapDb.atomicInteger(DOCUMENTSSIZE_MAPNAME).createOrOpen();
 		documentNames = mapDb.hashMap(DOCUMENTNAMES_MAPNAME, Serializer.INTEGER, Serializer.STRING).createOrOpen();
 		documentBytes = mapDb.hashMap(DOCUMENTBYTES_MAPNAME, Serializer.INTEGER, Serializer.BYTE_ARRAY).createOrOpen();
+		documentOrder = new DocumentOrder(
+				mapDb.hashMap(DOCUMENTORDER_MAPNAME, Serializer.INTEGER, Serializer.INT_ARRAY).createOrOpen(),
+				size.get());
+		int[] shardIndexes = shardRange(size.get());
+		firstIndex = shardIndexes[0];
+		shardSize = shardIndexes[1] - shardIndexes[0];
 	}
 
 	@Override
 	public void cleanup() {
+		cleanupVirtualCorpus();
 		if (mapDb != null) {
 			mapDb.close();
 		}
@@ -123,37 +137,63 @@ public class MapDbCorpus extends VirtualCorpus {
 
 	@Override
 	protected int loadSize() throws Exception {
-		return size.get();
+		return isSharded() ? shardSize : size.get();
 	}
 
 	@Override
 	protected String loadDocumentName(int index) throws Exception {
-		return documentNames.get(index);
+		return documentNames.get(documentOrder.get(firstIndex + index));
+	}
+
+	/**
+	 * the maps of MapDB are thread safe
+	 */
+	@Override
+	protected boolean isConcurrentLoadingSupported() {
+		return true;
 	}
 
 	@Override
 	protected Document loadDocument(int index) throws Exception {
-		if (documentBytes.containsKey(index)) {
-			try (InputStream in = new ByteArrayInputStream(documentBytes.get(index))) {
-				return DocumentUtil.readDocument(in, compressDocuments);
+		byte[] bytes = documentBytes.get(documentOrder.get(firstIndex + index));
+		if (bytes != null) {
+			recordBytesRead(bytes.length);
+			try (InputStream in = new ByteArrayInputStream(bytes)) {
+				return readDocument(in, compressDocuments);
 			}
 		}
 		return null;
 	}
 
+	/**
+	 * deserializes only the features stored in front of the document, documents
+	 * stored by older versions are deserialized completely
+	 */
 	@Override
-	protected void addDocuments(int index, Collection<? extends Document> documents) throws Exception {
-		if (index < size()) {
-			shiftIndexMap(documentNames, index, size(), documents.size());
-			shiftIndexMap(documentBytes, index, size(), documents.size());
+	protected FeatureMap loadDocumentFeatures(int index) throws Exception {
+		byte[] bytes = documentBytes.get(documentOrder.get(firstIndex + index));
+		if (bytes == null) {
+			return null;
 		}
+		try (InputStream in = new ByteArrayInputStream(bytes)) {
+			return DocumentUtil.readDocumentFeatures(in, compressDocuments);
+		}
+	}
+
+	/**
+	 * the documents are stored under ids independent of their index, so only the
+	 * document order is changed for the following documents
+	 */
+	@Override
+	protected void addDocuments(int index, Collection<? extends Document> documents) throws Exception {
+		int[] documentIds = documentOrder.insert(index, documents.size());
 
-		int i = index;
+		int i = 0;
 		Iterator<? extends Document> iterator = documents.iterator();
 		while (iterator.hasNext()) {
 			Document document = iterator.next();
-			documentNames.put(i, document.getName());
-			documentBytes.put(i, buildBytes(document));
+			documentNames.put(documentIds[i], document.getName());
+			documentBytes.put(documentIds[i], buildBytes(document));
 			i++;
 		}
 		size.addAndGet(documents.size());
@@ -161,15 +201,35 @@ public class MapDbCorpus extends VirtualCorpus {
 
 	@Override
 	protected void setDocument(int index, Document document) throws Exception {
-		documentNames.put(index, document.getName());
-		documentBytes.put(index, buildBytes(document));
+		int documentId = documentOrder.get(firstIndex + index);
+		documentNames.put(documentId, document.getName());
+		documentBytes.put(documentId, buildBytes(document));
+	}
+
+	/**
+	 * writes all documents with one put per map and commits once
+	 */
+	@Override
+	protected void setDocuments(Map<Integer, Document> documents) throws Exception {
+		Map<Integer, String> names = new HashMap<>();
+		Map<Integer, byte[]> bytes = new HashMap<>();
+		for (int index : documents.keySet()) {
+			Document document = documents.get(index);
+			int documentId = documentOrder.get(firstIndex + index);
+			names.put(documentId, document.getName());
+			bytes.put(documentId, buildBytes(document));
+		}
+		documentNames.putAll(names);
+		documentBytes.putAll(bytes);
+		mapDb.commit();
 	}
 
 	@Override
 	protected void deleteDocuments(Set<Integer> indexes) throws Exception {
-		Integer firstIndex = indexes.stream().min(Integer::compareTo).get();
-		removeFromIndexMap(documentNames, firstIndex, size(), indexes);
-		removeFromIndexMap(documentBytes, firstIndex, size(), indexes);
+		for (int documentId : documentOrder.remove(indexes)) {
+			documentNames.remove(documentId);
+			documentBytes.remove(documentId);
+		}
 		size.addAndGet(-indexes.size());
 	}
 
@@ -177,17 +237,19 @@ public class MapDbCorpus extends VirtualCorpus {
 	protected void deleteAllDocuments() throws Exception {
 		documentNames.clear();
 		documentBytes.clear();
+		documentOrder.clear();
 		size.set(0);
 	}
 
 	@Override
 	protected void renameDocument(Document document, String oldName, String newName) throws Exception {
-		documentNames.put(indexOf(document), newName);
+		documentNames.put(documentOrder.get(firstIndex + indexOf(document)), newName);
 	}
 
 	private byte[] buildBytes(Document document) throws IOException {
 		try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
 			DocumentUtil.writeDocument(document, baos, compressDocuments);
+			recordBytesWritten(baos.size());
 			return baos.toByteArray();
 		}
 	}
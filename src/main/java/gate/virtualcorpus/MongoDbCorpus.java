@@ -10,6 +10,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
@@ -26,6 +27,7 @@ import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
 
 import gate.Document;
@@ -40,6 +42,8 @@ import gate.creole.metadata.CreoleParameter;
 import gate.creole.metadata.CreoleResource;
 import gate.creole.metadata.Optional;
 import gate.util.GateRuntimeException;
+import gate.virtualcorpus.jfr.FlightRecorder;
+import gate.virtualcorpus.jfr.SkipEvent;
 
 @CreoleResource(name = "MongoDbCorpus", interfaceName = "gate.Corpus", icon = "corpus", comment = "A corpus backed by GATE documents stored in a MongoDB")
 public class MongoDbCorpus extends VirtualCorpus {
@@ -76,6 +80,7 @@ public class MongoDbCorpus extends VirtualCorpus {
 	private transient MongoClient client;
 	private transient MongoDatabase database;
 	private transient MongoCollection<org.bson.Document> collection;
+	private transient Bson shardFilter;
 	private transient FindIterable<org.bson.Document> cursor;
 	private transient int cursorPosition;
 	private transient MongoCursor<org.bson.Document> iterator;
@@ -262,6 +267,7 @@ public class MongoDbCorpus extends VirtualCorpus {
 	public Resource init() throws ResourceInstantiationException {
 		checkValidMimeType(mimeType, false);
 		checkValidExporterClassName(exporterClassName, false);
+		checkShard();
 		if (!hasValue(host)) {
 			throw new ResourceInstantiationException("host must not be empty");
 		}
@@ -304,7 +310,8 @@ public class MongoDbCorpus extends VirtualCorpus {
 			}
 		}
 
-		cursor = collection.find().noCursorTimeout(true).sort(Sorts.ascending(ID_KEY_NAME));
+		shardFilter = selectShardFilter();
+		cursor = collection.find(shardFilter).noCursorTimeout(true).sort(Sorts.ascending(ID_KEY_NAME));
 		if (batchSize != null) {
 			cursor = cursor.batchSize(batchSize);
 		}
@@ -325,6 +332,7 @@ public class MongoDbCorpus extends VirtualCorpus {
 
 	@Override
 	public void cleanup() {
+		cleanupVirtualCorpus();
 		if (iterator != null) {
 			iterator.close();
 		}
@@ -343,13 +351,69 @@ public class MongoDbCorpus extends VirtualCorpus {
 
 	@Override
 	protected int loadSize() throws Exception {
-		long countDocuments = collection.countDocuments();
+		long countDocuments = collection.countDocuments(shardFilter);
 		if (countDocuments > Integer.MAX_VALUE) {
 			throw new IllegalStateException("too many documents in mongodb, unsupported by Gate/List");
 		}
 		return (int) countDocuments * contentKeyList.size();
 	}
 
+	/**
+	 * the collection is thread safe, so documents are counted while other
+	 * backend calls are running
+	 */
+	@Override
+	protected boolean isConcurrentSizeLoadingSupported() {
+		return true;
+	}
+
+	/**
+	 * uses the collection metadata instead of scanning the collection
+	 */
+	@Override
+	protected Integer loadEstimatedSize() throws Exception {
+		long estimatedDocumentCount = collection.estimatedDocumentCount();
+		if (estimatedDocumentCount * contentKeyList.size() > Integer.MAX_VALUE) {
+			return null;
+		}
+		int[] shardDocuments = shardRange((int) estimatedDocumentCount);
+		return (shardDocuments[1] - shardDocuments[0]) * contentKeyList.size();
+	}
+
+	/**
+	 * restricts all queries to the _id range of the shard, which is bounded by
+	 * the ids of the first documents of this and the next shard
+	 */
+	private Bson selectShardFilter() {
+		if (!isSharded()) {
+			return new org.bson.Document();
+		}
+		long countDocuments = collection.countDocuments();
+		if (countDocuments > Integer.MAX_VALUE) {
+			throw new IllegalStateException("too many documents in mongodb, unsupported by Gate/List");
+		}
+		int[] shardDocuments = shardRange((int) countDocuments);
+		if (shardDocuments[0] >= countDocuments) {
+			return Filters.in(ID_KEY_NAME, Collections.emptyList());
+		}
+		List<Bson> filters = new ArrayList<>();
+		if (shardDocuments[0] > 0) {
+			filters.add(Filters.gte(ID_KEY_NAME, selectIdAtDocumentIndex(shardDocuments[0])));
+		}
+		if (shardDocuments[1] < countDocuments) {
+			filters.add(Filters.lt(ID_KEY_NAME, selectIdAtDocumentIndex(shardDocuments[1])));
+		}
+		if (filters.isEmpty()) {
+			return new org.bson.Document();
+		}
+		return Filters.and(filters.toArray(new Bson[0]));
+	}
+
+	private ObjectId selectIdAtDocumentIndex(int documentIndex) {
+		return collection.find().sort(Sorts.ascending(ID_KEY_NAME)).skip(documentIndex).limit(1)
+				.projection(Projections.include(ID_KEY_NAME)).first().getObjectId(ID_KEY_NAME);
+	}
+
 	@Override
 	protected String loadDocumentName(int index) throws Exception {
 		Integer documentIndex = documentIndex(index);
@@ -365,20 +429,224 @@ public class MongoDbCorpus extends VirtualCorpus {
 
 	}
 
+	@Override
+	protected boolean supportsBulkDocumentNames() {
+		return true;
+	}
+
+	/**
+	 * reads the names of all documents in the range with one query
+	 */
+	@Override
+	protected List<String> loadDocumentNames(int fromIndex, int toIndex) throws Exception {
+		List<String> documentNames = new ArrayList<>(toIndex - fromIndex);
+		if (fromIndex >= toIndex) {
+			return documentNames;
+		}
+		int fromDocumentIndex = documentIndex(fromIndex);
+		int toDocumentIndex = documentIndex(toIndex - 1) + 1;
+		SkipEvent event = beginSkipEvent();
+		FindIterable<org.bson.Document> names = collection.find(shardFilter).sort(Sorts.ascending(ID_KEY_NAME))
+				.skip(fromDocumentIndex).limit(toDocumentIndex - fromDocumentIndex)
+				.projection(Projections.include(nameKeyList));
+		if (batchSize != null) {
+			names = names.batchSize(batchSize);
+		}
+		try (MongoCursor<org.bson.Document> iterator = names.iterator()) {
+			int index = fromIndex;
+			for (int documentIndex = fromDocumentIndex; documentIndex < toDocumentIndex; documentIndex++) {
+				if (!iterator.hasNext()) {
+					throw new IllegalStateException("no document " + documentIndex + " in collection");
+				}
+				org.bson.Document mongoDbDocument = iterator.next();
+				String[] ids;
+				if (nameKeyList.isEmpty()) {
+					String id = getId(mongoDbDocument);
+					if (cacheIds) {
+						idCache.putIfAbsent(documentIndex, id);
+					}
+					ids = new String[] { id };
+				} else {
+					ids = getStringValues(mongoDbDocument, nameKeyList);
+				}
+				for (; index < toIndex && documentIndex(index) == documentIndex; index++) {
+					documentNames.add(buildDocumentName(contentKey(index), ids));
+				}
+			}
+		}
+		commitSkipEvent(event, fromDocumentIndex, toDocumentIndex - fromDocumentIndex);
+		return documentNames;
+	}
+
+	/**
+	 * loads share the cursor and the id iterator, so they are serialized if ids
+	 * are cached. Otherwise concurrent loads query the document by position with
+	 * a query of their own.
+	 */
+	@Override
+	protected boolean isConcurrentLoadingSupported() {
+		return !cacheIds;
+	}
+
 	@Override
 	protected Document loadDocument(int index) throws Exception {
 		Integer documentIndex = documentIndex(index);
 		String contentKey = contentKey(index);
 
+		List<String> includeKeys = includeKeys(Collections.singletonList(contentKey));
+		org.bson.Document mongoDbDocument;
+		if (holdsBackendLock()) {
+			mongoDbDocument = getDocument(documentIndex, includeKeys);
+		} else {
+			mongoDbDocument = findDocuments(documentIndex, documentIndex + 1, includeKeys).get(0);
+		}
+		return createDocument(mongoDbDocument, contentKey);
+	}
+
+	/**
+	 * reads all documents of the range with one query, by id if the ids are
+	 * cached and by position otherwise
+	 */
+	@Override
+	protected List<Document> loadDocuments(int fromIndex, int toIndex) throws Exception {
+		List<Document> documents = new ArrayList<>(toIndex - fromIndex);
+		if (fromIndex >= toIndex) {
+			return documents;
+		}
+		int fromDocumentIndex = documentIndex(fromIndex);
+		int toDocumentIndex = documentIndex(toIndex - 1) + 1;
+		List<String> contentKeys = new ArrayList<>();
+		for (int index = fromIndex; index < toIndex && contentKeys.size() < contentKeyList.size(); index++) {
+			if (!contentKeys.contains(contentKey(index))) {
+				contentKeys.add(contentKey(index));
+			}
+		}
+		List<org.bson.Document> mongoDbDocuments = findDocuments(fromDocumentIndex, toDocumentIndex,
+				includeKeys(contentKeys));
+		for (int index = fromIndex; index < toIndex; index++) {
+			org.bson.Document mongoDbDocument = mongoDbDocuments.get(documentIndex(index) - fromDocumentIndex);
+			if (mongoDbDocument == null) {
+				throw new IllegalStateException("no document " + documentIndex(index) + " in collection");
+			}
+			documents.add(createDocument(mongoDbDocument, contentKey(index)));
+		}
+		return documents;
+	}
+
+	/**
+	 * reads the mongodb documents of a range with one query, by id if the ids are
+	 * cached and by position otherwise
+	 * 
+	 * @return the mongodb documents, null for documents not found by id
+	 */
+	private List<org.bson.Document> findDocuments(int fromDocumentIndex, int toDocumentIndex,
+			List<String> includeKeys) {
+		List<org.bson.Document> mongoDbDocuments = new ArrayList<>(toDocumentIndex - fromDocumentIndex);
+		if (cacheIds) {
+			List<ObjectId> ids = new ArrayList<>(toDocumentIndex - fromDocumentIndex);
+			for (int documentIndex = fromDocumentIndex; documentIndex < toDocumentIndex; documentIndex++) {
+				ids.add(new ObjectId(getId(documentIndex)));
+			}
+			Map<String, org.bson.Document> mongoDbDocumentsById = new HashMap<>();
+			for (org.bson.Document mongoDbDocument : collection.find(Filters.in(ID_KEY_NAME, ids))
+					.projection(Projections.include(includeKeys))) {
+				mongoDbDocumentsById.put(getId(mongoDbDocument), mongoDbDocument);
+			}
+			for (ObjectId id : ids) {
+				mongoDbDocuments.add(mongoDbDocumentsById.get(id.toHexString()));
+			}
+		} else {
+			SkipEvent event = beginSkipEvent();
+			FindIterable<org.bson.Document> values = collection.find(shardFilter).sort(Sorts.ascending(ID_KEY_NAME))
+					.skip(fromDocumentIndex).limit(toDocumentIndex - fromDocumentIndex)
+					.projection(Projections.include(includeKeys));
+			if (batchSize != null) {
+				values = values.batchSize(batchSize);
+			}
+			values.into(mongoDbDocuments);
+			commitSkipEvent(event, fromDocumentIndex, toDocumentIndex - fromDocumentIndex);
+		}
+		if (mongoDbDocuments.size() != toDocumentIndex - fromDocumentIndex) {
+			throw new IllegalStateException("no documents " + fromDocumentIndex + " to " + toDocumentIndex
+					+ " in collection, got " + mongoDbDocuments.size());
+		}
+		return mongoDbDocuments;
+	}
+
+	private List<String> includeKeys(List<String> contentKeys) {
 		List<String> includeKeys = new ArrayList<>();
 		includeKeys.addAll(nameKeyList);
-		includeKeys.add(contentKey);
+		includeKeys.addAll(contentKeys);
 		includeKeys.addAll(featureKeyList);
 		if (hasValue(exportKeySuffix)) {
-			String exportKey = exportKeyMapping.get(contentKey);
-			includeKeys.add(exportKey);
+			for (String contentKey : contentKeys) {
+				includeKeys.add(exportKeyMapping.get(contentKey));
+			}
+		}
+		return includeKeys;
+	}
+
+	/**
+	 * creates the features of a document from the feature keys of a mongodb
+	 * document
+	 */
+	private FeatureMap createFeatures(org.bson.Document mongoDbDocument, String id, String contentKey) {
+		FeatureMap features = Factory.newFeatureMap();
+		features.put(GateConstants.THROWEX_FORMAT_PROPERTY_NAME, true);
+		for (String featureKey : featureKeyList) {
+			Object feature = mongoDbDocument.get(featureKey);
+			features.put(featureKeyPrefix + featureKey, feature);
+		}
+		if (hasValue(idFeatureName)) {
+			features.put(featureKeyPrefix + idFeatureName, id);
+		}
+		if (hasValue(contentKeyFeatureName)) {
+			features.put(featureKeyPrefix + contentKeyFeatureName, contentKey);
 		}
-		org.bson.Document mongoDbDocument = getDocument(documentIndex, includeKeys);
+		return features;
+	}
+
+	/**
+	 * reads only the feature keys of the mongodb document
+	 */
+	@Override
+	protected FeatureMap loadDocumentFeatures(int index) throws Exception {
+		List<String> includeKeys = featureKeyList.isEmpty() ? Collections.singletonList(ID_KEY_NAME) : featureKeyList;
+		org.bson.Document mongoDbDocument = getDocument(documentIndex(index), includeKeys);
+		if (mongoDbDocument == null) {
+			throw new IllegalStateException("no document " + documentIndex(index) + " in collection");
+		}
+		return createFeatures(mongoDbDocument, getId(mongoDbDocument), contentKey(index));
+	}
+
+	/**
+	 * reads only the feature keys of the mongodb documents of the range with one
+	 * query
+	 */
+	@Override
+	protected List<FeatureMap> loadDocumentFeatures(int fromIndex, int toIndex) throws Exception {
+		List<FeatureMap> documentFeatures = new ArrayList<>(toIndex - fromIndex);
+		if (fromIndex >= toIndex) {
+			return documentFeatures;
+		}
+		int fromDocumentIndex = documentIndex(fromIndex);
+		int toDocumentIndex = documentIndex(toIndex - 1) + 1;
+		List<String> includeKeys = featureKeyList.isEmpty() ? Collections.singletonList(ID_KEY_NAME) : featureKeyList;
+		List<org.bson.Document> mongoDbDocuments = findDocuments(fromDocumentIndex, toDocumentIndex, includeKeys);
+		for (int index = fromIndex; index < toIndex; index++) {
+			org.bson.Document mongoDbDocument = mongoDbDocuments.get(documentIndex(index) - fromDocumentIndex);
+			if (mongoDbDocument == null) {
+				throw new IllegalStateException("no document " + documentIndex(index) + " in collection");
+			}
+			documentFeatures.add(createFeatures(mongoDbDocument, getId(mongoDbDocument), contentKey(index)));
+		}
+		return documentFeatures;
+	}
+
+	/**
+	 * creates the document of a content key from a mongodb document
+	 */
+	private Document createDocument(org.bson.Document mongoDbDocument, String contentKey) throws Exception {
 		String id = getId(mongoDbDocument);
 
 		Object content = null;
@@ -398,22 +666,13 @@ public class MongoDbCorpus extends VirtualCorpus {
 		if (content == null) {
 			content = "";
 		} else if (content instanceof org.bson.types.Binary) {
+			recordBytesRead(((org.bson.types.Binary) content).length());
 			content = new String(((org.bson.types.Binary) content).getData(), encoding);
-		} else if (!(content instanceof String)) {
+		} else {
 			content = content.toString();
+			recordBytesRead(((String) content).length());
 		}
-		FeatureMap features = Factory.newFeatureMap();
-		features.put(GateConstants.THROWEX_FORMAT_PROPERTY_NAME, true);
-		for (String featureKey : featureKeyList) {
-			Object feature = mongoDbDocument.get(featureKey);
-			features.put(featureKeyPrefix + featureKey, feature);
-		}
-		if (hasValue(idFeatureName)) {
-			features.put(featureKeyPrefix + idFeatureName, id);
-		}
-		if (hasValue(contentKeyFeatureName)) {
-			features.put(featureKeyPrefix + contentKeyFeatureName, contentKey);
-		}
+		FeatureMap features = createFeatures(mongoDbDocument, id, contentKey);
 		FeatureMap params = Factory.newFeatureMap();
 		params.put(Document.DOCUMENT_STRING_CONTENT_PARAMETER_NAME, content);
 		params.put(Document.DOCUMENT_ENCODING_PARAMETER_NAME, encoding);
@@ -435,34 +694,26 @@ public class MongoDbCorpus extends VirtualCorpus {
 
 	@Override
 	protected void setDocument(int index, Document document) throws Exception {
-		Integer documentIndex = documentIndex(index);
-		String contentKey = contentKey(index);
+		String id = getId(documentIndex(index));
 
-		if (hasValue(exportKeySuffix)) {
-			contentKey = exportKeyMapping.get(contentKey);
-		}
+		collection.updateOne(Filters.eq(ID_KEY_NAME, new ObjectId(id)),
+				Updates.set(updateKey(index), exportDocument(document)));
+	}
 
-		DocumentExporter exporter = null;
-		if (hasValue(exporterClassName)) {
-			exporter = getExporterForClassName(exporterClassName);
-		}
-		if (exporter == null && hasValue(mimeType)) {
-			exporter = getExporterForMimeType(mimeType);
+	/**
+	 * writes all documents with one bulk write
+	 */
+	@Override
+	protected void setDocuments(Map<Integer, Document> documents) throws Exception {
+		List<UpdateOneModel<org.bson.Document>> updates = new ArrayList<>(documents.size());
+		for (int index : documents.keySet()) {
+			String id = getId(documentIndex(index));
+			updates.add(new UpdateOneModel<>(Filters.eq(ID_KEY_NAME, new ObjectId(id)),
+					Updates.set(updateKey(index), exportDocument(documents.get(index)))));
 		}
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-		if (exporter != null) {
-			export(outputStream, document, exporter);
-		} else if (hasValue(encoding)) {
-			export(outputStream, document, encoding);
-		} else {
-			export(outputStream, document);
+		if (!updates.isEmpty()) {
+			collection.bulkWrite(updates);
 		}
-
-		byte[] bytes = outputStream.toByteArray();
-
-		String id = getId(documentIndex);
-
-		collection.updateOne(Filters.eq(ID_KEY_NAME, new ObjectId(id)), Updates.set(contentKey, bytes));
 	}
 
 	@Override
@@ -507,11 +758,64 @@ public class MongoDbCorpus extends VirtualCorpus {
 			return collection.find(Filters.eq(ID_KEY_NAME, new ObjectId(id)))
 					.projection(Projections.include(includeKeys)).first();
 		}
+		SkipEvent event = beginSkipEvent();
 		if (documentIndex != cursorPosition) {
 			cursor.skip(documentIndex);
 			cursorPosition = documentIndex;
 		}
-		return cursor.projection(Projections.include(includeKeys)).first();
+		org.bson.Document mongoDbDocument = cursor.projection(Projections.include(includeKeys)).first();
+		commitSkipEvent(event, documentIndex, 1);
+		return mongoDbDocument;
+	}
+
+	/**
+	 * @return the begun event, null if JFR is not available
+	 */
+	private static SkipEvent beginSkipEvent() {
+		if (!FlightRecorder.AVAILABLE) {
+			return null;
+		}
+		SkipEvent event = new SkipEvent();
+		event.begin();
+		return event;
+	}
+
+	private void commitSkipEvent(SkipEvent event, int skip, int limit) {
+		if (skip > 0 && event != null && event.shouldCommit()) {
+			event.corpus = getName();
+			event.collection = collectionName;
+			event.skip = skip;
+			event.limit = limit;
+			event.commit();
+		}
+	}
+
+	private String updateKey(int index) {
+		String contentKey = contentKey(index);
+		if (hasValue(exportKeySuffix)) {
+			contentKey = exportKeyMapping.get(contentKey);
+		}
+		return contentKey;
+	}
+
+	private byte[] exportDocument(Document document) {
+		DocumentExporter exporter = null;
+		if (hasValue(exporterClassName)) {
+			exporter = getExporterForClassName(exporterClassName);
+		}
+		if (exporter == null && hasValue(mimeType)) {
+			exporter = getExporterForMimeType(mimeType);
+		}
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		if (exporter != null) {
+			export(outputStream, document, exporter);
+		} else if (hasValue(encoding)) {
+			export(outputStream, document, encoding);
+		} else {
+			export(outputStream, document);
+		}
+		recordBytesWritten(outputStream.size());
+		return outputStream.toByteArray();
 	}
 
 	private String buildDocumentName(String contentKey, String... ids) {
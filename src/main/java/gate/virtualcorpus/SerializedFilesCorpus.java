@@ -1,11 +1,14 @@
 package gate.virtualcorpus;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -43,6 +46,7 @@ public class SerializedFilesCorpus extends VirtualCorpus {
 	private transient Integer size;
 	private transient boolean regularFiles;
 	private transient List<Path> paths;
+	private transient int firstIndex;
 
 	@CreoleParameter(comment = "The directory URL where files will be read from", defaultValue = "")
 	public void setDirectoryURL(URL directoryURL) {
@@ -110,6 +114,7 @@ public class SerializedFilesCorpus extends VirtualCorpus {
 	@Override
 	public Resource init() throws ResourceInstantiationException {
 		checkValidMimeType(mimeType, false);
+		checkShard();
 		if (directoryURL == null) {
 			throw new ResourceInstantiationException("directoryURL must be set");
 		}
@@ -128,6 +133,21 @@ public class SerializedFilesCorpus extends VirtualCorpus {
 		if (!Files.isDirectory(directory)) {
 			throw new ResourceInstantiationException("directoryURL is not a directory");
 		}
+		Path manifestPath = getManifestPath();
+		if (manifestPath != null && manifestPath.toAbsolutePath().startsWith(directory.toAbsolutePath())) {
+			throw new ResourceInstantiationException("manifestFile must not be inside directoryURL");
+		}
+		ManifestState manifestState = (ManifestState) readManifestState();
+		if (manifestState != null) {
+			regularFiles = manifestState.regularFiles;
+			if (regularFiles) {
+				paths = manifestState.fileNames.stream().map(directory::resolve).collect(Collectors.toList());
+			}
+			firstIndex = manifestState.firstIndex;
+			size = manifestState.size;
+			initVirtualCorpus();
+			return this;
+		}
 		try {
 			if (containsDirectories(directory)) {
 				throw new ResourceInstantiationException("directory contains sub directories");
@@ -152,9 +172,16 @@ public class SerializedFilesCorpus extends VirtualCorpus {
 					paths = stream.collect(Collectors.toList());
 				}
 				paths.removeAll(paths.stream().map(path -> writePath(path)).collect(Collectors.toSet()));
+				if (isSharded()) {
+					Collections.sort(paths);
+					int[] shardPaths = shardRange(paths.size());
+					paths = new ArrayList<>(paths.subList(shardPaths[0], shardPaths[1]));
+				}
 				size = paths.size();
 			} else {
-				size = maxIndex + 1;
+				int[] shardIndexes = shardRange(maxIndex + 1);
+				firstIndex = shardIndexes[0];
+				size = shardIndexes[1] - shardIndexes[0];
 			}
 
 		} catch (IOException e) {
@@ -166,6 +193,42 @@ public class SerializedFilesCorpus extends VirtualCorpus {
 		return this;
 	}
 
+	@Override
+	public void cleanup() {
+		cleanupVirtualCorpus();
+	}
+
+	private static class ManifestState implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private boolean regularFiles;
+		private ArrayList<String> fileNames;
+		private int firstIndex;
+		private int size;
+	}
+
+	/**
+	 * files are only listed if the directory changed, which is detected by its
+	 * modification time
+	 */
+	@Override
+	protected String loadManifestFingerprint() throws Exception {
+		return directory.toAbsolutePath() + "\n" + Files.getLastModifiedTime(directory);
+	}
+
+	@Override
+	protected Serializable getManifestState() {
+		ManifestState manifestState = new ManifestState();
+		manifestState.regularFiles = regularFiles;
+		if (regularFiles) {
+			manifestState.fileNames = paths.stream().map(path -> path.getFileName().toString())
+					.collect(Collectors.toCollection(ArrayList::new));
+		}
+		manifestState.firstIndex = firstIndex;
+		manifestState.size = isCorpusLoaded() ? size() : size;
+		return manifestState;
+	}
+
 	@Override
 	protected int loadSize() throws Exception {
 		return size;
@@ -185,6 +248,38 @@ public class SerializedFilesCorpus extends VirtualCorpus {
 		}
 	}
 
+	/**
+	 * serialized documents have to be opened one by one to read their names
+	 */
+	@Override
+	protected boolean supportsBulkDocumentNames() {
+		return regularFiles;
+	}
+
+	/**
+	 * regular file names are read from the listed paths, serialized documents
+	 * have to be opened one by one to read their names
+	 */
+	@Override
+	protected List<String> loadDocumentNames(int fromIndex, int toIndex) throws Exception {
+		if (!regularFiles) {
+			return super.loadDocumentNames(fromIndex, toIndex);
+		}
+		List<String> documentNames = new ArrayList<>(toIndex - fromIndex);
+		for (Path path : paths.subList(fromIndex, toIndex)) {
+			documentNames.add(path.getFileName().toString());
+		}
+		return documentNames;
+	}
+
+	/**
+	 * files are read independently of each other
+	 */
+	@Override
+	protected boolean isConcurrentLoadingSupported() {
+		return true;
+	}
+
 	@Override
 	protected Document loadDocument(int index) throws Exception {
 		if (regularFiles) {
@@ -193,8 +288,10 @@ public class SerializedFilesCorpus extends VirtualCorpus {
 			if (Files.exists(writePath)) {
 				return loadDocument(writePath);
 			}
-			String documentName = getDocumentName(index);
-			String content = new String(Files.readAllBytes(path));
+			String documentName = loadDocumentName(index);
+			byte[] bytes = Files.readAllBytes(path);
+			recordBytesRead(bytes.length);
+			String content = new String(bytes);
 			FeatureMap features = Factory.newFeatureMap();
 			features.put(GateConstants.THROWEX_FORMAT_PROPERTY_NAME, true);
 			FeatureMap params = Factory.newFeatureMap();
@@ -212,6 +309,20 @@ public class SerializedFilesCorpus extends VirtualCorpus {
 
 	}
 
+	/**
+	 * deserializes only the features stored in front of a serialized document,
+	 * regular files are parsed by the document format, which adds features, so
+	 * they are loaded completely
+	 */
+	@Override
+	protected FeatureMap loadDocumentFeatures(int index) throws Exception {
+		Path path = regularFiles ? writePath(paths.get(index)) : indexedPath(index);
+		if (!Files.exists(path)) {
+			return null;
+		}
+		return DocumentUtil.readDocumentFeatures(Files.newInputStream(path), compressFiles);
+	}
+
 	@Override
 	protected void addDocuments(int index, Collection<? extends Document> documents) throws Exception {
 		if (regularFiles) {
@@ -238,6 +349,7 @@ public class SerializedFilesCorpus extends VirtualCorpus {
 			path = indexedPath(index);
 		}
 		DocumentUtil.writeDocument(document, Files.newOutputStream(path), compressFiles);
+		recordBytesWritten(Files.size(path));
 	}
 
 	@Override
@@ -279,11 +391,12 @@ public class SerializedFilesCorpus extends VirtualCorpus {
 	}
 
 	private Document loadDocument(Path path) throws Exception {
-		return DocumentUtil.readDocument(Files.newInputStream(path), compressFiles);
+		recordBytesRead(Files.size(path));
+		return readDocument(Files.newInputStream(path), compressFiles);
 	}
 
 	private Path indexedPath(int index) {
-		String filename = String.valueOf(index);
+		String filename = String.valueOf(firstIndex + index);
 		return directory.resolve(writePath(Paths.get(filename)));
 	}
 
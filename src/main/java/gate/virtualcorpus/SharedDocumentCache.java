@@ -0,0 +1,185 @@
+package gate.virtualcorpus;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LRU cache of serialized documents, shared by all {@link VirtualCorpus}
+ * instances of the JVM, which set sharedCacheBytes.
+ *
+ * The documents are stored in direct byte buffers, so they do not add to the
+ * heap and are not traced by the garbage collector. The cache is bounded by the
+ * largest sharedCacheBytes of the registered corpora. Entries are keyed by
+ * corpus and index, so a corpus has to remove its entries when documents are
+ * replaced or indexes shift.
+ */
+final class SharedDocumentCache {
+
+	static final SharedDocumentCache INSTANCE = new SharedDocumentCache();
+
+	private static final AtomicInteger nextCorpusId = new AtomicInteger();
+
+	private final LinkedHashMap<Long, ByteBuffer> documents = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<Integer, Long> registeredCorpora = new HashMap<>();
+	private long maxBytes;
+	private long bytes;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	private SharedDocumentCache() {
+	}
+
+	/**
+	 * @return a new id for a corpus, unique within the JVM
+	 */
+	static int newCorpusId() {
+		return nextCorpusId.incrementAndGet();
+	}
+
+	private static long key(int corpusId, int index) {
+		return ((long) corpusId << 32) | (index & 0xffffffffL);
+	}
+
+	private static int corpusId(long key) {
+		return (int) (key >>> 32);
+	}
+
+	public synchronized void register(int corpusId, long maxBytes) {
+		registeredCorpora.put(corpusId, maxBytes);
+		updateMaxBytes();
+	}
+
+	/**
+	 * removes all documents of the corpus, the cache shrinks to the bound of the
+	 * remaining corpora
+	 */
+	public synchronized void unregister(int corpusId) {
+		registeredCorpora.remove(corpusId);
+		removeCorpus(corpusId);
+		updateMaxBytes();
+	}
+
+	private void updateMaxBytes() {
+		maxBytes = 0;
+		for (long corpusMaxBytes : registeredCorpora.values()) {
+			maxBytes = Math.max(maxBytes, corpusMaxBytes);
+		}
+		evict();
+	}
+
+	/**
+	 * @return a stream of the serialized document, or null if it is not cached
+	 */
+	public synchronized InputStream get(int corpusId, int index) {
+		ByteBuffer document = documents.get(key(corpusId, index));
+		if (document == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return new ByteBufferInputStream(document.duplicate());
+	}
+
+	public synchronized boolean containsKey(int corpusId, int index) {
+		return documents.containsKey(key(corpusId, index));
+	}
+
+	/**
+	 * copies the serialized document off heap, documents larger than the cache
+	 * are not cached
+	 */
+	public synchronized void put(int corpusId, int index, byte[] serializedDocument) {
+		remove(corpusId, index);
+		if (serializedDocument.length > maxBytes) {
+			return;
+		}
+		ByteBuffer document = ByteBuffer.allocateDirect(serializedDocument.length);
+		document.put(serializedDocument);
+		document.flip();
+		documents.put(key(corpusId, index), document);
+		bytes += serializedDocument.length;
+		evict();
+	}
+
+	public synchronized void remove(int corpusId, int index) {
+		ByteBuffer document = documents.remove(key(corpusId, index));
+		if (document != null) {
+			bytes -= document.capacity();
+		}
+	}
+
+	public synchronized void removeCorpus(int corpusId) {
+		Iterator<Map.Entry<Long, ByteBuffer>> iterator = documents.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Long, ByteBuffer> entry = iterator.next();
+			if (corpusId(entry.getKey()) == corpusId) {
+				bytes -= entry.getValue().capacity();
+				iterator.remove();
+			}
+		}
+	}
+
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	private void evict() {
+		Iterator<ByteBuffer> iterator = documents.values().iterator();
+		while (bytes > maxBytes && iterator.hasNext()) {
+			bytes -= iterator.next().capacity();
+			iterator.remove();
+			evictions++;
+		}
+	}
+
+	private static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(len, buffer.remaining());
+			buffer.get(b, off, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
+}
@@ -3,33 +3,55 @@ package gate.virtualcorpus;
 import java.io.ByteArrayOutputStream;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.Spliterator;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.log4j.Logger;
 
 import gate.Annotation;
 import gate.AnnotationSet;
 import gate.Corpus;
 import gate.Document;
+import gate.Factory;
 import gate.DocumentExporter;
 import gate.DocumentFormat;
 import gate.FeatureMap;
@@ -39,8 +61,6 @@ import gate.creole.AbstractLanguageResource;
 import gate.creole.ResourceInstantiationException;
 import gate.creole.metadata.CreoleParameter;
 import gate.creole.metadata.Optional;
-import gate.event.AnnotationEvent;
-import gate.event.AnnotationListener;
 import gate.event.AnnotationSetEvent;
 import gate.event.AnnotationSetListener;
 import gate.event.CorpusEvent;
@@ -57,12 +77,24 @@ import gate.relations.Relation;
 import gate.relations.RelationSet;
 import gate.util.GateException;
 import gate.util.GateRuntimeException;
+import gate.serialization.DocumentUtil;
 import gate.util.persistence.PersistenceManager;
+import gate.virtualcorpus.jfr.DocumentGetEvent;
+import gate.virtualcorpus.jfr.DocumentNameGetEvent;
+import gate.virtualcorpus.jfr.DocumentReadEvent;
+import gate.virtualcorpus.jfr.DocumentSaveEvent;
+import gate.virtualcorpus.jfr.FlightRecorder;
 
 public abstract class VirtualCorpus extends AbstractLanguageResource implements Corpus {
 	private static final long serialVersionUID = -7769699900341757030L;
 	private static Logger logger = Logger.getLogger(VirtualCorpus.class);
 
+	protected static final int DOCUMENT_NAMES_CHUNK_SIZE = 1000;
+	protected static final int DOCUMENT_NAMES_READ_AHEAD = 100;
+	protected static final int DOCUMENTS_CHUNK_SIZE = 100;
+	protected static final long DOCUMENT_BYTES = 1024;
+	protected static final long ANNOTATION_BYTES = 256;
+
 	static {
 		try {
 			PersistenceManager.registerPersistentEquivalent(VirtualCorpus.class, VirtualCorpusPersistence.class);
@@ -74,6 +106,20 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 	private Boolean readonlyDocuments = true;
 	private Boolean immutableCorpus = true;
 	private Integer cacheDocumentNames;
+	private Long cacheDocumentNamesBytes;
+	private Integer prefetchCount;
+	private Integer writeBehindQueueSize;
+	private Integer maxLoadedDocuments;
+	private Long maxLoadedBytes;
+	private Long sharedCacheBytes;
+	private Boolean concurrentLoading;
+	private Boolean lazyDocuments;
+	private Boolean estimateSize;
+	private Integer shardIndex;
+	private Integer shardCount;
+	private URL checkpointFile;
+	private Integer checkpointInterval;
+	private URL manifestFile;
 
 	@Optional
 	@CreoleParameter(comment = "cache n last document names", defaultValue = "100000")
@@ -85,20 +131,495 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 		return cacheDocumentNames;
 	}
 
+	@Optional
+	@CreoleParameter(comment = "maximum estimated bytes of cached document names (unbounded, if empty)", defaultValue = "")
+	public void setCacheDocumentNamesBytes(Long cacheDocumentNamesBytes) {
+		this.cacheDocumentNamesBytes = cacheDocumentNamesBytes;
+	}
+
+	public Long getCacheDocumentNamesBytes() {
+		return cacheDocumentNamesBytes;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "load the next n documents in background while iterating (disabled, if empty)", defaultValue = "")
+	public void setPrefetchCount(Integer prefetchCount) {
+		this.prefetchCount = prefetchCount;
+	}
+
+	public Integer getPrefetchCount() {
+		return prefetchCount;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "save changed documents in background when they are unloaded, with a queue of n documents (disabled, if empty)", defaultValue = "")
+	public void setWriteBehindQueueSize(Integer writeBehindQueueSize) {
+		this.writeBehindQueueSize = writeBehindQueueSize;
+	}
+
+	public Integer getWriteBehindQueueSize() {
+		return writeBehindQueueSize;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "unload the least recently used documents, if more documents are loaded (unbounded, if empty). Changed documents are saved, readonly documents are kept while they are known to be changed, but changed features of their annotations are not detected, so such documents are unloaded and their changes are lost", defaultValue = "")
+	public void setMaxLoadedDocuments(Integer maxLoadedDocuments) {
+		this.maxLoadedDocuments = maxLoadedDocuments;
+	}
+
+	public Integer getMaxLoadedDocuments() {
+		return maxLoadedDocuments;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "unload the least recently used documents, if the estimated bytes of loaded documents are exceeded (unbounded, if empty). Readonly documents are unloaded like with maxLoadedDocuments", defaultValue = "")
+	public void setMaxLoadedBytes(Long maxLoadedBytes) {
+		this.maxLoadedBytes = maxLoadedBytes;
+	}
+
+	public Long getMaxLoadedBytes() {
+		return maxLoadedBytes;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "If set, documents loaded from the backend are kept serialized off heap in a cache shared by all virtual corpora, bounded by the largest sharedCacheBytes of all loaded corpora", defaultValue = "")
+	public void setSharedCacheBytes(Long sharedCacheBytes) {
+		this.sharedCacheBytes = sharedCacheBytes;
+	}
+
+	public Long getSharedCacheBytes() {
+		return sharedCacheBytes;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "If true, documents are loaded by several threads at once, if the backend supports it", defaultValue = "false")
+	public void setConcurrentLoading(Boolean concurrentLoading) {
+		this.concurrentLoading = concurrentLoading;
+	}
+
+	public Boolean getConcurrentLoading() {
+		return concurrentLoading;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "If true and supported by the backend, documents are returned with name and features only, content and annotations are loaded on first access", defaultValue = "false")
+	public void setLazyDocuments(Boolean lazyDocuments) {
+		this.lazyDocuments = lazyDocuments;
+	}
+
+	public Boolean getLazyDocuments() {
+		return lazyDocuments;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "If true, the corpus starts with an estimated size, if the backend supports it, and loads the exact size in background", defaultValue = "false")
+	public void setEstimateSize(Boolean estimateSize) {
+		this.estimateSize = estimateSize;
+	}
+
+	public Boolean getEstimateSize() {
+		return estimateSize;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "index of the shard of the backend this corpus contains, from 0 to shardCount - 1", defaultValue = "")
+	public void setShardIndex(Integer shardIndex) {
+		this.shardIndex = shardIndex;
+	}
+
+	public Integer getShardIndex() {
+		return shardIndex;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "If set, the backend is split in shardCount contiguous shards and the corpus contains only the shard shardIndex", defaultValue = "")
+	public void setShardCount(Integer shardCount) {
+		this.shardCount = shardCount;
+	}
+
+	public Integer getShardCount() {
+		return shardCount;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "If set, the indexes of processed documents are stored in this file and skipped by iterators when the corpus is loaded again", defaultValue = "")
+	public void setCheckpointFile(URL checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	public URL getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "minimal number of seconds between two writes of the checkpoint file", defaultValue = "60")
+	public void setCheckpointInterval(Integer checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	public Integer getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	@Optional
+	@CreoleParameter(comment = "If set and supported by the backend, the size, file list and cached document names are stored in this file on cleanup and reused on init, as long as the backend has not changed", defaultValue = "")
+	public void setManifestFile(URL manifestFile) {
+		this.manifestFile = manifestFile;
+	}
+
+	public URL getManifestFile() {
+		return manifestFile;
+	}
+
 	private transient VirtualCorpusCreoleListener creoleListener;
 	private boolean loaded = false;
 
 	private Integer size;
+	private transient boolean sizeEstimated;
+	private transient CompletableFuture<Integer> exactSize;
 	private transient int modCount = 0;
-	private SortedMap<Integer, Document> loadedDocuments = new TreeMap<>();
-	private SortedMap<Integer, String> loadedDocumentNames = new TreeMap<>();
-	private Set<Integer> lruDocumentNameIndexes = new LinkedHashSet<>();
-	private Map<Document, DocumentChangeObserver> documentChangeObservers = new HashMap<>();
+	private transient IndexMap<Document> loadedDocuments = new IndexMap<>();
+	private transient Map<Document, Integer> loadedDocumentIndexes = new IdentityHashMap<>();
+	private transient Map<Document, Long> loadedDocumentBytes = new IdentityHashMap<>();
+	private transient long loadedBytes;
+	private transient DocumentNameCache documentNameCache;
+	private transient Map<Document, DocumentChangeObserver> documentChangeObservers = new IdentityHashMap<>();
+	private transient IndexMap<CompletableFuture<Document>> prefetchedDocuments = new IndexMap<>();
+	/**
+	 * documents passed to the action of a spliterator, which are not evicted
+	 */
+	private transient Set<Document> consumedDocuments = Collections.newSetFromMap(new IdentityHashMap<>());
+	private transient List<CompletableFuture<Document>> discardedDocuments = new ArrayList<>();
+	private transient ExecutorService prefetchExecutor;
+	private transient ExecutorService sizeExecutor;
+	private transient WriteBehindQueue writeBehindQueue;
+	private transient Checkpoint checkpoint;
+	/**
+	 * indexes of processed documents, which are marked in the checkpoint once
+	 * their changes are saved
+	 */
+	private transient Set<Integer> unsavedProcessedIndexes = new HashSet<>();
+	private transient int sharedCacheId;
+	private transient Manifest manifest;
+	private transient String manifestFingerprint;
+	private transient int manifestBackendVersion = -1;
+	private transient int manifestWrittenBackendVersion = -1;
+
+	/**
+	 * guards all calls of backend methods, which may be called by the prefetch
+	 * and write behind threads
+	 */
+	private final transient Object backendLock = new Object();
+
+	/**
+	 * excludes concurrent loads during structural changes of the backend, see
+	 * {@link #isConcurrentLoadingSupported()}
+	 */
+	private final transient ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+
+	/**
+	 * incremented on every write to the backend, so concurrent loads can detect
+	 * they are outdated
+	 */
+	private transient int backendVersion;
 
-	protected final void initVirtualCorpus() {
+	private final transient VirtualCorpusMetrics metrics = new VirtualCorpusMetrics(this);
+
+	protected final void initVirtualCorpus() throws ResourceInstantiationException {
+		documentNameCache = new DocumentNameCache(cacheDocumentNames, cacheDocumentNamesBytes);
+		initCheckpoint();
+		if (manifest != null) {
+			size = manifest.size;
+			for (Entry<Integer, String> documentName : manifest.documentNames.entrySet()) {
+				documentNameCache.put(documentName.getKey(), documentName.getValue());
+			}
+			manifest = null;
+		}
+		manifestBackendVersion = backendVersion;
+		if (sharedCacheBytes != null && sharedCacheBytes > 0) {
+			sharedCacheId = SharedDocumentCache.newCorpusId();
+			SharedDocumentCache.INSTANCE.register(sharedCacheId, sharedCacheBytes);
+		}
+		if (!readonlyDocuments && writeBehindQueueSize != null && writeBehindQueueSize > 0) {
+			writeBehindQueue = new WriteBehindQueue(writeBehindQueueSize, "VirtualCorpus write behind " + getName(),
+					(index, document) -> {
+						DocumentSaveEvent event = beginSaveEvent();
+						synchronized (backendLock) {
+							long startNanos = System.nanoTime();
+							setDocument(index, document);
+							metrics.setDocument.record(1, startNanos);
+						}
+						commitSaveEvent(event, Collections.singletonMap(index, document), true);
+					});
+		}
 		creoleListener = new VirtualCorpusCreoleListener(this);
 		Gate.getCreoleRegister().addCreoleListener(creoleListener);
 		loaded = true;
+		metrics.register();
+	}
+
+	/**
+	 * must be called by backends at the beginning of cleanup, saves all documents
+	 * still queued for write behind, writes the checkpoint and the manifest and
+	 * unregisters the metrics MBean
+	 */
+	protected final void cleanupVirtualCorpus() {
+		metrics.unregister();
+		if (writeBehindQueue != null) {
+			WriteBehindQueue writeBehindQueue = this.writeBehindQueue;
+			this.writeBehindQueue = null;
+			writeBehindQueue.shutdown();
+		}
+		try {
+			writeManifest();
+		} catch (GateRuntimeException e) {
+			logger.warn("cannot write manifest of corpus " + getName(), e);
+		}
+		if (sharedCacheId != 0) {
+			SharedDocumentCache.INSTANCE.unregister(sharedCacheId);
+			sharedCacheId = 0;
+		}
+		if (checkpoint != null) {
+			try {
+				checkpoint.flush();
+			} catch (IOException e) {
+				logger.warn("cannot write checkpoint of corpus " + getName(), e);
+			}
+		}
+	}
+
+	private void initCheckpoint() throws ResourceInstantiationException {
+		if (checkpointFile == null) {
+			return;
+		}
+		if (!immutableCorpus) {
+			throw new ResourceInstantiationException("a corpus with checkpointFile must be immutable");
+		}
+		Path path;
+		try {
+			path = Paths.get(checkpointFile.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			throw new ResourceInstantiationException("checkpointFile must be a file", e);
+		}
+		int interval = checkpointInterval != null ? Math.max(checkpointInterval, 0) : 60;
+		try {
+			checkpoint = new Checkpoint(path, isSharded() ? shardIndex : 0, isSharded() ? shardCount : 1,
+					interval * 1000L);
+		} catch (IOException e) {
+			throw new ResourceInstantiationException("cannot read checkpoint " + checkpointFile, e);
+		}
+	}
+
+	/**
+	 * @return the manifestFile as path, or null if not set
+	 */
+	protected final Path getManifestPath() throws ResourceInstantiationException {
+		if (manifestFile == null) {
+			return null;
+		}
+		try {
+			return Paths.get(manifestFile.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			throw new ResourceInstantiationException("manifestFile must be a file", e);
+		}
+	}
+
+	/**
+	 * a fingerprint of the backend, which changes whenever documents are added,
+	 * removed or renamed in the backend. It is computed on init and compared to
+	 * the fingerprint stored in the manifest, so it must be much cheaper than the
+	 * work the manifest saves.
+	 * 
+	 * @return the fingerprint, or null if the backend does not support manifests
+	 */
+	protected String loadManifestFingerprint() throws Exception {
+		return null;
+	}
+
+	/**
+	 * @return backend specific state to store in the manifest, which is returned
+	 *         by {@link #readManifestState()} on the next init
+	 */
+	protected Serializable getManifestState() {
+		return null;
+	}
+
+	private String manifestFingerprint() throws Exception {
+		String fingerprint = loadManifestFingerprint();
+		if (fingerprint == null) {
+			return null;
+		}
+		return getClass().getName() + "\n" + (isSharded() ? shardIndex + "/" + shardCount : "") + "\n" + fingerprint;
+	}
+
+	/**
+	 * reads the manifest, must be called by backends supporting manifests in
+	 * init, before initVirtualCorpus. The size and the document names of the
+	 * manifest are used by initVirtualCorpus.
+	 * 
+	 * @return the backend specific state of the manifest, or null if there is no
+	 *         manifest or the backend changed since it was written
+	 */
+	protected final Serializable readManifestState() throws ResourceInstantiationException {
+		Path path = getManifestPath();
+		if (path == null) {
+			return null;
+		}
+		try {
+			manifestFingerprint = manifestFingerprint();
+		} catch (Exception e) {
+			throw new ResourceInstantiationException("cannot compute fingerprint for manifest", e);
+		}
+		if (manifestFingerprint == null || !Files.exists(path)) {
+			return null;
+		}
+		Manifest manifest;
+		try {
+			manifest = Manifest.read(path);
+		} catch (IOException e) {
+			logger.warn("cannot read manifest " + path, e);
+			return null;
+		}
+		if (!manifestFingerprint.equals(manifest.fingerprint)) {
+			logger.info("manifest " + path + " is outdated");
+			return null;
+		}
+		this.manifest = manifest;
+		return manifest.state;
+	}
+
+	/**
+	 * writes the size, the cached document names and the backend specific state
+	 * to the manifestFile. It is written on cleanup and when the corpus is
+	 * persisted, but only if the corpus was changed since it was written last.
+	 * If the corpus changed the backend, the cached document names are not
+	 * stored, since they may be outdated.
+	 */
+	public final synchronized void writeManifest() {
+		if (manifestFingerprint == null || backendVersion == manifestWrittenBackendVersion) {
+			return;
+		}
+		try {
+			boolean backendChanged = backendVersion != manifestBackendVersion;
+			String fingerprint = backendChanged ? manifestFingerprint() : manifestFingerprint;
+			int size;
+			synchronized (backendLock) {
+				size = this.size != null && !sizeEstimated ? this.size : loadSize();
+			}
+			LinkedHashMap<Integer, String> documentNames = new LinkedHashMap<>();
+			if (!backendChanged) {
+				for (int index : documentNameCache.indexes()) {
+					documentNames.put(index, documentNameCache.peek(index));
+				}
+			}
+			new Manifest(fingerprint, size, documentNames, getManifestState()).write(getManifestPath());
+			manifestWrittenBackendVersion = backendVersion;
+		} catch (Exception e) {
+			throw new GateRuntimeException("cannot write manifest " + manifestFile, e);
+		}
+	}
+
+	/**
+	 * called when the iterator or spliterator is done with a document. The
+	 * document is marked as processed in the checkpoint, after its changes are
+	 * saved.
+	 */
+	private void documentProcessed(int index) {
+		if (checkpoint == null) {
+			return;
+		}
+		Document document = loadedDocuments.get(index);
+		if (document != null && !readonlyDocuments && hasDocumentChanged(document)) {
+			unsavedProcessedIndexes.add(index);
+		} else if (isSavePending(index)) {
+			writeBehindQueue.whenSaved(index, () -> markProcessed(index));
+		} else {
+			markProcessed(index);
+		}
+	}
+
+	/**
+	 * marks the document as processed in the checkpoint. Checkpoint is thread
+	 * safe, so this is called by the write behind thread, too.
+	 */
+	private void markProcessed(int index) {
+		if (checkpoint != null) {
+			try {
+				checkpoint.markProcessed(index);
+			} catch (IOException e) {
+				logger.warn("cannot write checkpoint of corpus " + getName(), e);
+			}
+		}
+	}
+
+	/**
+	 * @return true, if the document was processed by the iterator or
+	 *         spliterator while a checkpointFile was set, in this or a previous
+	 *         run. Processed documents are skipped by
+	 *         {@link #iterator()} and {@link #spliterator()}.
+	 */
+	public final synchronized boolean isDocumentProcessed(int index) {
+		return checkpoint != null && checkpoint.isProcessed(index);
+	}
+
+	public final synchronized int getProcessedDocumentCount() {
+		return checkpoint != null ? checkpoint.getProcessedCount() : 0;
+	}
+
+	/**
+	 * @return the first index from the index on, which was not processed yet
+	 */
+	private int nextUnprocessedIndex(int index) {
+		return checkpoint != null ? checkpoint.nextUnprocessed(index) : index;
+	}
+
+	/**
+	 * @return the first processed index from the index on, or the size of the
+	 *         corpus
+	 */
+	private int nextProcessedIndex(int index) {
+		int nextProcessed = checkpoint != null ? checkpoint.nextProcessed(index) : -1;
+		return nextProcessed < 0 ? size() : nextProcessed;
+	}
+
+	/**
+	 * must be called by backends at the beginning of init, if they support
+	 * shardIndex and shardCount
+	 */
+	protected final void checkShard() throws ResourceInstantiationException {
+		if (shardCount == null && shardIndex == null) {
+			return;
+		}
+		if (shardCount == null || shardCount < 1) {
+			throw new ResourceInstantiationException("shardCount must be positive, if shardIndex is set");
+		}
+		if (shardIndex == null || shardIndex < 0 || shardIndex >= shardCount) {
+			throw new ResourceInstantiationException("shardIndex must be from 0 to " + (shardCount - 1));
+		}
+		if (isSharded() && !immutableCorpus) {
+			throw new ResourceInstantiationException("a sharded corpus must be immutable");
+		}
+	}
+
+	protected final boolean isSharded() {
+		return shardCount != null && shardCount > 1;
+	}
+
+	/**
+	 * splits count units of the backend, like rows or files, in contiguous
+	 * shards of nearly the same size. Backends should split units containing
+	 * several documents, so documents of a unit stay in one shard.
+	 * 
+	 * @param count of units in the backend
+	 * @return the first (inclusive) and last (exclusive) unit of the shard
+	 */
+	protected final int[] shardRange(int count) {
+		if (!isSharded()) {
+			return new int[] { 0, count };
+		}
+		int fromIndex = (int) ((long) count * shardIndex / shardCount);
+		int toIndex = (int) ((long) count * (shardIndex + 1) / shardCount);
+		return new int[] { fromIndex, toIndex };
 	}
 
 	protected Boolean getReadonlyDocuments() {
@@ -252,15 +773,20 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 
 		@Override
 		public void resourceRenamed(Resource resource, String oldName, String newName) {
-			if (corpus.contains(resource)) {
-				Document document = (Document) resource;
-				if (corpus.readonlyDocuments) {
-					document.setName(oldName);
-				} else {
-					try {
-						corpus.renameDocument(document, oldName, newName);
-					} catch (Exception e) {
-						throw new GateRuntimeException("cannot rename document " + document, e);
+			// the corpus is locked before the backend like in all other calls
+			synchronized (corpus) {
+				if (corpus.contains(resource)) {
+					Document document = (Document) resource;
+					if (corpus.readonlyDocuments) {
+						document.setName(oldName);
+					} else {
+						try {
+							synchronized (corpus.backendLock) {
+								corpus.renameDocument(document, oldName, newName);
+							}
+						} catch (Exception e) {
+							throw new GateRuntimeException("cannot rename document " + document, e);
+						}
 					}
 				}
 			}
@@ -287,23 +813,62 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 		}
 	}
 
-	private static class DocumentChangeObserver implements DocumentListener, AnnotationSetListener, AnnotationListener,
-			RelationSetListener, FeatureMapListener {
+	/**
+	 * observes a document for changes with listeners on the document, its
+	 * feature map, its annotation sets and their relation sets only, so the cost
+	 * does not depend on the count of annotations. Changes of annotations and
+	 * relations are detected by comparing a fingerprint of their offsets and
+	 * features, which is computed at load and on demand, if no other change was
+	 * observed. Readonly documents are observed without fingerprint, so added or
+	 * removed annotations, relations and annotation sets, edited content and
+	 * changed document features are detected without walking the annotations.
+	 */
+	private static class DocumentChangeObserver
+			implements DocumentListener, AnnotationSetListener, RelationSetListener, FeatureMapListener {
+
+		private static final long FINGERPRINT_MULTIPLIER = 0x9E3779B97F4A7C15L;
 
 		private Document document;
 		private boolean changed = false;
+		private final boolean fingerprinted;
+		private long fingerprint;
 
 		private Map<String, AnnotationSet> annotationSets = new HashMap<>();
 
-		public DocumentChangeObserver(Document document) {
+		/**
+		 * false while the content of a lazy document is not loaded, only its
+		 * features can change meanwhile
+		 */
+		private boolean contentObserved = false;
+
+		public DocumentChangeObserver(Document document, boolean fingerprinted) {
 			this.document = document;
+			this.fingerprinted = fingerprinted;
+
+			registerFeatureMap(document.getFeatures());
+			if (!(document instanceof LazyDocument) || ((LazyDocument) document).isMaterialized()) {
+				observeContent();
+			}
+		}
 
-			registerDocument();
+		private void observeContent() {
+			if (!contentObserved) {
+				registerDocument();
+				if (fingerprinted) {
+					fingerprint = fingerprint();
+				}
+				contentObserved = true;
+			}
 		}
 
-		private void registerDocument() {
-			registerFeatureMap(document.getFeatures());
+		private boolean hasChanged() {
+			if (!changed && fingerprinted && contentObserved && fingerprint() != fingerprint) {
+				changed = true;
+			}
+			return changed;
+		}
 
+		private void registerDocument() {
 			registerAnnotationSet(document.getAnnotations());
 			for (AnnotationSet annotationSet : document.getNamedAnnotationSets().values()) {
 				registerAnnotationSet(annotationSet);
@@ -312,8 +877,11 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 		}
 
 		private void unregisterDocument() {
-			document.removeDocumentListener(this);
 			unregisterFeatureMap(document.getFeatures());
+			if (!contentObserved) {
+				return;
+			}
+			document.removeDocumentListener(this);
 
 			unregisterAnnotationSet(document.getAnnotations());
 			for (AnnotationSet annotationSet : document.getNamedAnnotationSets().values()) {
@@ -326,10 +894,7 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 			if (annotationSet.getName() != null && annotationSet.getName().length() > 0) {
 				annotationSets.put(annotationSet.getName(), annotationSet);
 			}
-			for (Annotation annotation : annotationSet) {
-				registerAnnotation(annotation);
-			}
-			registerRelationSet(annotationSet.getRelations());
+			annotationSet.getRelations().addRelationSetListener(this);
 		}
 
 		private void unregisterAnnotationSet(AnnotationSet annotationSet) {
@@ -337,50 +902,52 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 			if (annotationSet.getName() != null && annotationSet.getName().length() > 0) {
 				annotationSets.remove(annotationSet.getName());
 			}
-			for (Annotation annotation : annotationSet) {
-				unregisterAnnotation(annotation);
-			}
-			unregisterRelationSet(annotationSet.getRelations());
+			annotationSet.getRelations().removeRelationSetListener(this);
 		}
 
-		private void registerAnnotation(Annotation annotation) {
-			annotation.addAnnotationListener(this);
-			registerFeatureMap(annotation.getFeatures());
+		private void registerFeatureMap(FeatureMap featureMap) {
+			featureMap.addFeatureMapListener(this);
 		}
 
-		private void unregisterAnnotation(Annotation annotation) {
-			annotation.removeAnnotationListener(this);
-			unregisterFeatureMap(annotation.getFeatures());
+		private void unregisterFeatureMap(FeatureMap featureMap) {
+			featureMap.removeFeatureMapListener(this);
 		}
 
-		private void registerRelationSet(RelationSet relationSet) {
-			relationSet.addRelationSetListener(this);
-			for (Relation relation : relationSet) {
-				registerRelation(relation);
+		/**
+		 * @return a fingerprint of all annotations and relations, independent of
+		 *         their order
+		 */
+		private long fingerprint() {
+			long fingerprint = fingerprint(document.getAnnotations());
+			for (Entry<String, AnnotationSet> annotationSet : document.getNamedAnnotationSets().entrySet()) {
+				fingerprint += mix(annotationSet.getKey().hashCode() + fingerprint(annotationSet.getValue()));
 			}
+			return fingerprint;
 		}
 
-		private void unregisterRelationSet(RelationSet relationSet) {
-			relationSet.removeRelationSetListener(this);
-			for (Relation relation : relationSet) {
-				unregisterRelation(relation);
+		private static long fingerprint(AnnotationSet annotationSet) {
+			long fingerprint = 0;
+			for (Annotation annotation : annotationSet) {
+				long hash = annotation.getId();
+				hash = hash * 31 + annotation.getType().hashCode();
+				hash = hash * 31 + annotation.getStartNode().getOffset();
+				hash = hash * 31 + annotation.getEndNode().getOffset();
+				hash = hash * 31 + Objects.hashCode(annotation.getFeatures());
+				fingerprint += mix(hash);
 			}
+			for (Relation relation : annotationSet.getRelations()) {
+				long hash = relation.getId();
+				hash = hash * 31 + relation.getType().hashCode();
+				hash = hash * 31 + Arrays.hashCode(relation.getMembers());
+				hash = hash * 31 + Objects.hashCode(relation.getFeatures());
+				fingerprint += mix(hash);
+			}
+			return fingerprint;
 		}
 
-		private void registerRelation(Relation relation) {
-			registerFeatureMap(relation.getFeatures());
-		}
-
-		private void unregisterRelation(Relation relation) {
-			unregisterFeatureMap(relation.getFeatures());
-		}
-
-		private void registerFeatureMap(FeatureMap featureMap) {
-			featureMap.addFeatureMapListener(this);
-		}
-
-		private void unregisterFeatureMap(FeatureMap featureMap) {
-			featureMap.removeFeatureMapListener(this);
+		private static long mix(long hash) {
+			hash *= FINGERPRINT_MULTIPLIER;
+			return hash ^ (hash >>> 32);
 		}
 
 		@Override
@@ -391,25 +958,21 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 		@Override
 		public void relationAdded(RelationSetEvent e) {
 			changed = true;
-			registerRelation(e.getRelation());
 		}
 
 		@Override
 		public void relationRemoved(RelationSetEvent e) {
 			changed = true;
-			unregisterRelation(e.getRelation());
 		}
 
 		@Override
 		public void annotationAdded(AnnotationSetEvent e) {
 			changed = true;
-			registerAnnotation(e.getAnnotation());
 		}
 
 		@Override
 		public void annotationRemoved(AnnotationSetEvent e) {
 			changed = true;
-			unregisterAnnotation(e.getAnnotation());
 		}
 
 		@Override
@@ -431,60 +994,197 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 			changed = true;
 		}
 
-		@Override
-		public void annotationUpdated(AnnotationEvent e) {
-			changed = true;
-		}
-
 	}
 
+	/**
+	 * @return true, if the document changed since it was loaded. Changed features
+	 *         of annotations and relations of readonly documents are not
+	 *         detected.
+	 */
 	protected final boolean hasDocumentChanged(Document document) {
-		return documentChangeObservers.get(document).changed;
+		DocumentChangeObserver documentChangeObserver = documentChangeObservers.get(document);
+		return documentChangeObserver != null && documentChangeObserver.hasChanged();
 	}
 
-	protected boolean isCorpusLoaded() {
+	private void registerDocumentChangeObserver(Document document) {
+		documentChangeObservers.put(document, new DocumentChangeObserver(document, !readonlyDocuments));
+	}
+
+	private void unregisterDocumentChangeObserver(Document document) {
+		DocumentChangeObserver documentChangeObserver = documentChangeObservers.remove(document);
+		if (documentChangeObserver != null) {
+			documentChangeObserver.unregisterDocument();
+		}
+	}
+
+	protected boolean isCorpusLoaded() {
 		return loaded;
 	}
 
-	private final void unload() {
-		Iterator<Entry<Integer, Document>> iterator = loadedDocuments.entrySet().iterator();
-		while (iterator.hasNext()) {
-			Entry<Integer, Document> entry = iterator.next();
-			Integer index = entry.getKey();
-			Document document = entry.getValue();
-			if (!readonlyDocuments && hasDocumentChanged(document)) {
+	private final synchronized void unload() {
+		discardPrefetchedDocuments();
+		deleteDiscardedDocuments(true);
+		if (prefetchExecutor != null) {
+			prefetchExecutor.shutdown();
+			prefetchExecutor = null;
+		}
+		if (sizeExecutor != null) {
+			sizeExecutor.shutdown();
+			sizeExecutor = null;
+		}
+		GateRuntimeException writeBehindException = null;
+		try {
+			cleanupVirtualCorpus();
+		} catch (GateRuntimeException e) {
+			writeBehindException = e;
+		}
+		if (!readonlyDocuments) {
+			Map<Integer, Document> changedDocuments = new TreeMap<>();
+			for (int index : loadedDocuments.indexes()) {
+				Document document = loadedDocuments.get(index);
+				if (hasDocumentChanged(document)) {
+					changedDocuments.put(index, document);
+				}
+			}
+			if (!changedDocuments.isEmpty()) {
 				try {
-					saveDocument(document);
+					backendVersion++;
+					DocumentSaveEvent event = beginSaveEvent();
+					synchronized (backendLock) {
+						long startNanos = System.nanoTime();
+						setDocuments(changedDocuments);
+						metrics.setDocument.record(changedDocuments.size(), startNanos);
+					}
+					commitSaveEvent(event, changedDocuments, false);
 				} catch (Exception e) {
-					throw new GateRuntimeException("cannot update document " + document, e);
+					throw new GateRuntimeException("cannot update documents " + changedDocuments.keySet(), e);
 				}
 			}
-			iterator.remove();
-			documentChangeObservers.remove(document).unregisterDocument();
-			documentUnloaded(index, document);
+		}
+		for (int index : loadedDocuments.indexes()) {
+			Document document = loadedDocuments.get(index);
+			loadedDocuments.remove(index);
+			loadedDocumentIndexes.remove(document);
+			documentBytesUnloaded(document);
+			unregisterDocumentChangeObserver(document);
+			synchronized (backendLock) {
+				documentUnloaded(index, document);
+			}
 		}
 		loaded = false;
+		if (writeBehindException != null) {
+			throw writeBehindException;
+		}
 	}
 
 	/**
-	 * loads the size of the virtual corpus
+	 * loads the size of the virtual corpus. If estimateSize is set and
+	 * {@link #isConcurrentSizeLoadingSupported()}, this is called by a
+	 * background thread without the backend lock.
 	 * 
 	 * @return an Integer of the size
 	 */
 	protected abstract int loadSize() throws Exception;
 
+	/**
+	 * estimates the size of the virtual corpus, used if estimateSize is set.
+	 * Backends should override this if they can estimate the size much faster
+	 * than loading it.
+	 * 
+	 * @return the estimated size, null if the size cannot be estimated
+	 */
+	protected Integer loadEstimatedSize() throws Exception {
+		return null;
+	}
+
 	/**
 	 * @param index of document in corpus
 	 * @return the document name
 	 */
 	protected abstract String loadDocumentName(int index) throws Exception;
 
+	/**
+	 * loads the names of a range of documents, backends should override this if
+	 * they can read a range in one pass
+	 * 
+	 * @param fromIndex of first document in corpus (inclusive)
+	 * @param toIndex   of last document in corpus (exclusive)
+	 * @return the document names, null for documents without name
+	 */
+	protected List<String> loadDocumentNames(int fromIndex, int toIndex) throws Exception {
+		List<String> documentNames = new ArrayList<>(toIndex - fromIndex);
+		for (int index = fromIndex; index < toIndex; index++) {
+			documentNames.add(loadDocumentName(index));
+		}
+		return documentNames;
+	}
+
+	/**
+	 * backends should override this together with loadDocumentNames, if it
+	 * reads a range faster than the names one by one
+	 *
+	 * @return true, if names are read ahead on a cache miss
+	 */
+	protected boolean supportsBulkDocumentNames() {
+		return false;
+	}
+
 	/**
 	 * @param index of document in corpus
 	 * @return the document with features
 	 */
 	protected abstract Document loadDocument(int index) throws Exception;
 
+	/**
+	 * loads only the features of a document for lazyDocuments and
+	 * {@link #getDocumentFeatures(int, int)}, backends should override this if
+	 * they can read the features without the content. The features must be the
+	 * same as the features of {@link #loadDocument(int)}.
+	 * 
+	 * @param index of document in corpus
+	 * @return the features, null if the backend does not support lazy documents
+	 */
+	protected FeatureMap loadDocumentFeatures(int index) throws Exception {
+		return null;
+	}
+
+	/**
+	 * loads only the features of a range of documents, backends should override
+	 * this if they can read the features of a range with one query
+	 * 
+	 * @param fromIndex of first document in corpus (inclusive)
+	 * @param toIndex   of last document in corpus (exclusive)
+	 * @return the features, null for missing documents, or null if the backend
+	 *         cannot read features without the content
+	 */
+	protected List<FeatureMap> loadDocumentFeatures(int fromIndex, int toIndex) throws Exception {
+		List<FeatureMap> documentFeatures = new ArrayList<>(toIndex - fromIndex);
+		for (int index = fromIndex; index < toIndex; index++) {
+			FeatureMap features = loadDocumentFeatures(index);
+			if (features == null) {
+				return null;
+			}
+			documentFeatures.add(features);
+		}
+		return documentFeatures;
+	}
+
+	/**
+	 * loads a range of documents, backends should override this if they can read
+	 * a range with one query
+	 * 
+	 * @param fromIndex of first document in corpus (inclusive)
+	 * @param toIndex   of last document in corpus (exclusive)
+	 * @return the documents with features, null for missing documents
+	 */
+	protected List<Document> loadDocuments(int fromIndex, int toIndex) throws Exception {
+		List<Document> documents = new ArrayList<>(toIndex - fromIndex);
+		for (int index = fromIndex; index < toIndex; index++) {
+			documents.add(loadDocument(index));
+		}
+		return documents;
+	}
+
 	/**
 	 * 
 	 * @param index     where to insert new documents
@@ -495,6 +1195,18 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 
 	protected abstract void setDocument(int index, Document document) throws Exception;
 
+	/**
+	 * saves several documents, backends should override this if they can write
+	 * documents in one batch
+	 * 
+	 * @param documents by index in corpus, in ascending order
+	 */
+	protected void setDocuments(Map<Integer, Document> documents) throws Exception {
+		for (int index : documents.keySet()) {
+			setDocument(index, documents.get(index));
+		}
+	}
+
 	protected void saveDocument(Document document) throws Exception {
 		int index = this.indexOf(document);
 
@@ -510,33 +1222,18 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 	protected void documentUnloaded(int index, Document document) {
 	}
 
-	protected final void documentNameLoaded(int index, String documentName) {
+	protected final synchronized void documentNameLoaded(int index, String documentName) {
 		checkIndex(index);
-		if (cacheDocumentNames != null && cacheDocumentNames > 0) {
-			if (loadedDocumentNames.containsKey(index)) {
-				if (!documentName.contentEquals(this.getDocumentName(index))) {
-					throw new IllegalArgumentException("document name already loaded" + index + " and different");
-				}
+		if (documentNameCache.isEnabled()) {
+			String loadedDocumentName = documentNameCache.peek(index);
+			if (loadedDocumentName != null && !documentName.contentEquals(loadedDocumentName)) {
+				throw new IllegalArgumentException("document name already loaded" + index + " and different");
 			}
-			loadedDocumentNames.put(index, documentName);
-			updateLruDocumentNameIndex(index);
+			documentNameCache.put(index, documentName);
 		}
 	}
 
-	private void updateLruDocumentNameIndex(Integer index) {
-		lruDocumentNameIndexes.remove(index);
-		if (lruDocumentNameIndexes.size() >= cacheDocumentNames) {
-			Iterator<Integer> iterator = lruDocumentNameIndexes.iterator();
-			if (iterator.hasNext()) {
-				Integer leastUsedIndex = iterator.next();
-				iterator.remove();
-				loadedDocumentNames.remove(leastUsedIndex);
-			}
-		}
-		lruDocumentNameIndexes.add(index);
-	}
-
-	protected final void documentLoaded(int index, Document document) {
+	protected final synchronized void documentLoaded(int index, Document document) {
 		checkIndex(index);
 		if (loadedDocuments.containsKey(index)) {
 			throw new IllegalArgumentException("document index already loaded: " + index);
@@ -547,111 +1244,941 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 						"document already loaded " + document + " at another index " + indexOf(document));
 			}
 			documentNameLoaded(index, document.getName());
-			documentChangeObservers.put(document, new DocumentChangeObserver(document));
+			documentBytesLoaded(document);
+			registerDocumentChangeObserver(document);
+			loadedDocumentIndexes.put(document, index);
+		}
+		loadedDocuments.put(index, document);
+	}
+
+	/**
+	 * updates the document to index lookup for a document, which was moved by a
+	 * shift of loadedDocuments
+	 */
+	private void loadedDocumentMoved(Document document, int index) {
+		if (document != null) {
+			loadedDocumentIndexes.put(document, index);
+		}
+	}
+
+	@Override
+	public final synchronized boolean isDocumentLoaded(int index) {
+		checkLoaded();
+		checkIndex(index);
+		return loadedDocuments.containsKey(index);
+	}
+
+	public final synchronized long getDocumentNameCacheHits() {
+		checkLoaded();
+		return documentNameCache.getHits();
+	}
+
+	public final synchronized long getDocumentNameCacheMisses() {
+		checkLoaded();
+		return documentNameCache.getMisses();
+	}
+
+	public final synchronized long getDocumentNameCacheEvictions() {
+		checkLoaded();
+		return documentNameCache.getEvictions();
+	}
+
+	public final synchronized int getLoadedDocumentCount() {
+		checkLoaded();
+		return loadedDocuments.size();
+	}
+
+	/**
+	 * @return the count of loaded documents which changed since they were loaded
+	 */
+	public final synchronized int getChangedDocumentCount() {
+		checkLoaded();
+		int changedDocuments = 0;
+		for (Document document : documentChangeObservers.keySet()) {
+			if (hasDocumentChanged(document)) {
+				changedDocuments++;
+			}
+		}
+		return changedDocuments;
+	}
+
+	public final VirtualCorpusMetricsMBean getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return the begun event, null if JFR is not available
+	 */
+	private static DocumentSaveEvent beginSaveEvent() {
+		if (!FlightRecorder.AVAILABLE) {
+			return null;
+		}
+		DocumentSaveEvent event = new DocumentSaveEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * @param documents saved documents by index, in order
+	 */
+	private void commitSaveEvent(DocumentSaveEvent event, Map<Integer, Document> documents, boolean writeBehind) {
+		if (event != null && event.shouldCommit()) {
+			Entry<Integer, Document> firstDocument = documents.entrySet().iterator().next();
+			event.corpus = getName();
+			event.backend = getClass().getName();
+			event.index = firstDocument.getKey();
+			event.documentName = firstDocument.getValue().getName();
+			event.count = documents.size();
+			for (Document document : documents.values()) {
+				event.bytes += estimateDocumentBytes(document);
+			}
+			event.writeBehind = writeBehind;
+			event.commit();
+		}
+	}
+
+	/**
+	 * should be called by backends with the count of bytes read for documents,
+	 * exposed by {@link #getMetrics()}
+	 */
+	protected final void recordBytesRead(long bytes) {
+		metrics.bytesRead.add(bytes);
+	}
+
+	/**
+	 * should be called by backends with the count of bytes written for
+	 * documents, exposed by {@link #getMetrics()}
+	 */
+	protected final void recordBytesWritten(long bytes) {
+		metrics.bytesWritten.add(bytes);
+	}
+
+	public final synchronized long getDocumentNameCacheBytes() {
+		checkLoaded();
+		return documentNameCache.getBytes();
+	}
+
+	public final synchronized boolean isDocumentNameLoaded(int index) {
+		checkLoaded();
+		checkIndex(index);
+		return documentNameCache.containsKey(index);
+	}
+
+	@Override
+	public final synchronized void unloadDocument(Document document) {
+		checkLoaded();
+		if (document == null) {
+			return;
+		}
+		if (this.contains(document)) {
+			int index = loadedDocumentIndexes.get(document);
+			boolean changed = hasDocumentChanged(document);
+			boolean savedBehind = false;
+			if (!readonlyDocuments && changed) {
+				backendVersion++;
+				if (writeBehindQueue != null) {
+					writeBehindQueue.save(index, document);
+					savedBehind = true;
+				} else {
+					try {
+						DocumentSaveEvent event = beginSaveEvent();
+						synchronized (backendLock) {
+							long startNanos = System.nanoTime();
+							saveDocument(document);
+							metrics.setDocument.record(1, startNanos);
+						}
+						commitSaveEvent(event, Collections.singletonMap(index, document), false);
+					} catch (Exception e) {
+						throw new GateRuntimeException("cannot update document " + document, e);
+					}
+				}
+			}
+			loadedDocumentIndexes.remove(document);
+			loadedDocuments.remove(index);
+			documentBytesUnloaded(document);
+			unregisterDocumentChangeObserver(document);
+			synchronized (backendLock) {
+				documentUnloaded(index, document);
+			}
+			if (unsavedProcessedIndexes.remove(index)) {
+				if (savedBehind) {
+					writeBehindQueue.whenSaved(index, () -> markProcessed(index));
+				} else {
+					markProcessed(index);
+				}
+			}
+			if (sharedCacheId != 0 && !readonlyDocuments && changed) {
+				// the cached document is replaced by the saved one
+				cacheSharedDocument(index, document);
+			}
+		}
+	}
+
+	/**
+	 * @return a read only view of the document names, which loads the names on
+	 *         demand in chunks. The view holds only the last loaded chunk and
+	 *         does not add the names to the document name cache, so iterating
+	 *         over the names of a huge corpus needs little memory. The view
+	 *         follows changes of the corpus.
+	 */
+	@Override
+	public final synchronized List<String> getDocumentNames() {
+		checkLoaded();
+		return new DocumentNamesView(this);
+	}
+
+	/**
+	 * @return the names of the documents in the range, from the cache if all are
+	 *         cached, otherwise loaded from the backend without caching them
+	 */
+	private List<String> getDocumentNames(int fromIndex, int toIndex) {
+		List<String> documentNames = new ArrayList<>(toIndex - fromIndex);
+		for (int index = fromIndex; index < toIndex; index++) {
+			String documentName = documentNameCache.peek(index);
+			if (documentName == null) {
+				return loadDocumentNamesFromBackend(fromIndex, toIndex);
+			}
+			documentNames.add(documentName);
+		}
+		return documentNames;
+	}
+
+	private List<String> loadDocumentNamesChunk(int fromIndex, int toIndex) {
+		List<String> documentNames = loadDocumentNamesFromBackend(fromIndex, toIndex);
+		for (int i = 0; i < documentNames.size(); i++) {
+			String documentName = documentNames.get(i);
+			if (documentName != null) {
+				documentNameLoaded(fromIndex + i, documentName);
+			}
+		}
+		return documentNames;
+	}
+
+	private List<String> loadDocumentNamesFromBackend(int fromIndex, int toIndex) {
+		try {
+			synchronized (backendLock) {
+				long startNanos = System.nanoTime();
+				List<String> documentNames = loadDocumentNames(fromIndex, toIndex);
+				metrics.loadDocumentName.record(toIndex - fromIndex, startNanos);
+				return documentNames;
+			}
+		} catch (Exception e) {
+			throw new GateRuntimeException("cannot load document names " + fromIndex + " to " + toIndex, e);
+		}
+	}
+
+	/**
+	 * chunks are aligned to multiples of {@link #DOCUMENT_NAMES_CHUNK_SIZE}, so
+	 * iterating backwards loads every chunk only once, too. The chunk is dropped
+	 * when the corpus or the backend was changed.
+	 */
+	private static class DocumentNamesView extends AbstractList<String> implements RandomAccess {
+		private final VirtualCorpus corpus;
+		private List<String> chunk = Collections.emptyList();
+		private int chunkIndex;
+		private int chunkModCount;
+		private int chunkBackendVersion;
+
+		public DocumentNamesView(VirtualCorpus corpus) {
+			this.corpus = corpus;
+		}
+
+		@Override
+		public String get(int index) {
+			synchronized (corpus) {
+				corpus.checkLoaded();
+				corpus.checkIndex(index);
+				Document document = corpus.loadedDocuments.get(index);
+				if (document != null) {
+					return document.getName();
+				}
+				if (index < chunkIndex || index >= chunkIndex + chunk.size() || chunkModCount != corpus.modCount
+						|| chunkBackendVersion != corpus.backendVersion) {
+					loadChunk(index);
+				}
+				return chunk.get(index - chunkIndex);
+			}
+		}
+
+		private void loadChunk(int index) {
+			int fromIndex = index - index % DOCUMENT_NAMES_CHUNK_SIZE;
+			int toIndex = Math.min(fromIndex + DOCUMENT_NAMES_CHUNK_SIZE, corpus.size());
+			chunk = corpus.getDocumentNames(fromIndex, toIndex);
+			chunkIndex = fromIndex;
+			chunkModCount = corpus.modCount;
+			chunkBackendVersion = corpus.backendVersion;
+		}
+
+		@Override
+		public int size() {
+			return corpus.size();
+		}
+	}
+
+	@Override
+	public final synchronized String getDocumentName(int index) {
+		checkLoaded();
+		checkIndex(index);
+		DocumentNameGetEvent event = null;
+		if (FlightRecorder.AVAILABLE) {
+			event = new DocumentNameGetEvent();
+			event.begin();
+		}
+		String documentName = documentNameCache.get(index);
+		if (event != null) {
+			event.cached = documentName != null;
+		}
+		if (documentName == null) {
+			int readAhead = 1;
+			if (documentNameCache.isEnabled() && supportsBulkDocumentNames()) {
+				readAhead = Math.min(DOCUMENT_NAMES_READ_AHEAD, cacheDocumentNames);
+			}
+			documentName = loadDocumentNamesChunk(index, Math.min(index + readAhead, size())).get(0);
+		}
+		if (event != null && event.shouldCommit()) {
+			event.corpus = getName();
+			event.backend = getClass().getName();
+			event.index = index;
+			event.documentName = documentName;
+			event.commit();
+		}
+		return documentName;
+	}
+
+	@Override
+	public final Document get(int index) {
+		DocumentGetEvent event = null;
+		if (FlightRecorder.AVAILABLE) {
+			event = new DocumentGetEvent();
+			event.begin();
+		}
+		Document document;
+		if (concurrentLoading != null && concurrentLoading && !isLazy()) {
+			if (event != null && event.isEnabled()) {
+				synchronized (this) {
+					event.loaded = !loadedDocuments.containsKey(index);
+				}
+			}
+			document = getConcurrently(index);
+		} else {
+			synchronized (this) {
+				checkLoaded();
+				checkIndex(index);
+				if (event != null) {
+					event.loaded = !loadedDocuments.containsKey(index);
+				}
+				document = getDocument(index);
+				evictLoadedDocuments(index, index + 1);
+			}
+		}
+		if (event != null && event.shouldCommit()) {
+			event.corpus = getName();
+			event.backend = getClass().getName();
+			event.index = index;
+			if (document != null) {
+				event.documentName = document.getName();
+				event.bytes = estimateDocumentBytes(document);
+			}
+			event.commit();
+		}
+		return document;
+	}
+
+	/**
+	 * loads the document outside of the corpus lock, so other threads can use the
+	 * corpus meanwhile. The load is repeated, if the backend was written during
+	 * the load, and dropped, if another thread loaded the document first.
+	 */
+	private Document getConcurrently(int index) {
+		while (true) {
+			int expectedBackendVersion;
+			synchronized (this) {
+				checkLoaded();
+				checkIndex(index);
+				if (loadedDocuments.containsKey(index) || prefetchedDocuments.containsKey(index)
+						|| isSavePending(index)) {
+					Document document = getDocument(index);
+					evictLoadedDocuments(index, index + 1);
+					return document;
+				}
+				Document sharedCachedDocument = loadSharedCachedDocument(index);
+				if (sharedCachedDocument != null) {
+					Document document = documentLoadedFromBackend(index, sharedCachedDocument);
+					evictLoadedDocuments(index, index + 1);
+					return document;
+				}
+				expectedBackendVersion = backendVersion;
+			}
+
+			Document document = null;
+			Exception exception = null;
+			structureLock.readLock().lock();
+			try {
+				if (isConcurrentLoadingSupported()) {
+					long startNanos = System.nanoTime();
+					document = loadDocument(index);
+					metrics.loadDocument.record(1, startNanos);
+				} else {
+					synchronized (backendLock) {
+						long startNanos = System.nanoTime();
+						document = loadDocument(index);
+						metrics.loadDocument.record(1, startNanos);
+					}
+				}
+			} catch (Exception e) {
+				exception = e;
+			} finally {
+				structureLock.readLock().unlock();
+			}
+
+			synchronized (this) {
+				if (backendVersion == expectedBackendVersion) {
+					if (exception != null) {
+						throw new GateRuntimeException("cannot load document " + index, exception);
+					}
+					if (!loadedDocuments.containsKey(index)) {
+						document = documentLoadedFromBackend(index, document);
+						evictLoadedDocuments(index, index + 1);
+						return document;
+					}
+				}
+			}
+			if (document != null) {
+				Factory.deleteResource(document);
+			}
+		}
+	}
+
+	/**
+	 * backends should override this, if loadDocument can be called by several
+	 * threads at once. Structural changes are never concurrent to loads.
+	 * Concurrent loads are called without the backend lock, so backends can tell
+	 * them apart with {@link #holdsBackendLock()}.
+	 *
+	 * @return true, if loadDocument is thread safe
+	 */
+	protected boolean isConcurrentLoadingSupported() {
+		return false;
+	}
+
+	/**
+	 * backends should override this, if loadSize can be called without the
+	 * backend lock, while other backend calls are running. Otherwise an
+	 * estimated size is not replaced by the exact size in background, but when
+	 * the exact size is needed.
+	 *
+	 * @return true, if loadSize is thread safe
+	 */
+	protected boolean isConcurrentSizeLoadingSupported() {
+		return false;
+	}
+
+	/**
+	 * @return true, if the current thread holds the lock, which guards all
+	 *         backend calls except concurrent loads and exact sizes
+	 */
+	protected final boolean holdsBackendLock() {
+		return Thread.holdsLock(backendLock);
+	}
+
+	/**
+	 * calls a backend method of this corpus under its backend lock, used by
+	 * {@link CompositeVirtualCorpus} for its children
+	 */
+	final <T> T callBackend(Callable<T> call) throws Exception {
+		synchronized (backendLock) {
+			return call.call();
+		}
+	}
+
+	/**
+	 * @return the exact size, used by {@link CompositeVirtualCorpus} for its
+	 *         children
+	 */
+	final synchronized int exactSize() {
+		checkLoaded();
+		awaitExactSize();
+		return size;
+	}
+
+	private Document getDocument(int index) {
+		Document loadedDocument = loadedDocuments.touch(index);
+		if (loadedDocument != null) {
+			documentBytesLoaded(loadedDocument);
+			return loadedDocument;
+		}
+
+		Document document;
+		CompletableFuture<Document> prefetchedDocument = prefetchedDocuments.remove(index);
+		if (prefetchedDocument == null && writeBehindQueue != null) {
+			writeBehindQueue.await(index);
+		}
+		try {
+			if (prefetchedDocument != null) {
+				document = prefetchedDocument.get();
+			} else {
+				document = loadSharedCachedDocument(index);
+				if (document == null && isLazy()) {
+					document = loadLazyDocument(index);
+				}
+				if (document == null) {
+					synchronized (backendLock) {
+						long startNanos = System.nanoTime();
+						document = loadDocument(index);
+						metrics.loadDocument.record(1, startNanos);
+					}
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new GateRuntimeException("cannot load document " + index, e.getCause());
+		} catch (Exception e) {
+			throw new GateRuntimeException("cannot load document " + index, e);
+		}
+		return documentLoadedFromBackend(index, document);
+	}
+
+	/**
+	 * returns the documents of a range, all documents which are neither loaded
+	 * nor prefetched are read with {@link #loadDocuments(int, int)}
+	 * 
+	 * @param fromIndex of first document (inclusive)
+	 * @param toIndex   of last document (exclusive)
+	 * @return the documents, null for missing documents
+	 */
+	public final synchronized List<Document> get(int fromIndex, int toIndex) {
+		checkLoaded();
+		checkRange(fromIndex, toIndex);
+		if (writeBehindQueue != null) {
+			for (int index = fromIndex; index < toIndex; index++) {
+				writeBehindQueue.await(index);
+			}
+		}
+		List<Document> documents = new ArrayList<>(toIndex - fromIndex);
+		int index = fromIndex;
+		while (index < toIndex) {
+			if (loadedDocuments.containsKey(index) || prefetchedDocuments.containsKey(index)
+					|| isSharedCached(index)) {
+				documents.add(getDocument(index));
+				index++;
+				continue;
+			}
+			int endIndex = index + 1;
+			while (endIndex < toIndex && !loadedDocuments.containsKey(endIndex)
+					&& !prefetchedDocuments.containsKey(endIndex) && !isSharedCached(endIndex)) {
+				endIndex++;
+			}
+			List<Document> windowDocuments = null;
+			try {
+				if (isLazy()) {
+					windowDocuments = loadLazyDocuments(index, endIndex);
+				}
+				if (windowDocuments == null) {
+					synchronized (backendLock) {
+						long startNanos = System.nanoTime();
+						windowDocuments = loadDocuments(index, endIndex);
+						metrics.loadDocument.record(endIndex - index, startNanos);
+					}
+				}
+			} catch (Exception e) {
+				throw new GateRuntimeException("cannot load documents " + index + " to " + endIndex, e);
+			}
+			if (windowDocuments.size() != endIndex - index) {
+				throw new GateRuntimeException("cannot load documents " + index + " to " + endIndex + ", got "
+						+ windowDocuments.size() + " documents");
+			}
+			for (Document document : windowDocuments) {
+				documents.add(documentLoadedFromBackend(index++, document));
+			}
+		}
+		evictLoadedDocuments(fromIndex, toIndex);
+		return documents;
+	}
+
+	/**
+	 * returns the features of a range of documents without loading them, the
+	 * features of documents which are not loaded are read with
+	 * {@link #loadDocumentFeatures(int, int)}. Backends, which cannot read
+	 * features without the content, load the documents and unload them again.
+	 * 
+	 * @param fromIndex of first document (inclusive)
+	 * @param toIndex   of last document (exclusive)
+	 * @return the features, null for missing documents
+	 */
+	public final synchronized List<FeatureMap> getDocumentFeatures(int fromIndex, int toIndex) {
+		checkLoaded();
+		checkRange(fromIndex, toIndex);
+		if (writeBehindQueue != null) {
+			for (int index = fromIndex; index < toIndex; index++) {
+				writeBehindQueue.await(index);
+			}
+		}
+		List<FeatureMap> documentFeatures = new ArrayList<>(toIndex - fromIndex);
+		int index = fromIndex;
+		while (index < toIndex) {
+			if (loadedDocuments.containsKey(index)) {
+				Document document = loadedDocuments.get(index);
+				documentFeatures.add(document != null ? document.getFeatures() : null);
+				index++;
+				continue;
+			}
+			int endIndex = index + 1;
+			while (endIndex < toIndex && !loadedDocuments.containsKey(endIndex)) {
+				endIndex++;
+			}
+			List<FeatureMap> windowFeatures;
+			try {
+				windowFeatures = loadDocumentFeaturesWindow(index, endIndex);
+			} catch (Exception e) {
+				throw new GateRuntimeException("cannot load document features " + index + " to " + endIndex, e);
+			}
+			if (windowFeatures.size() != endIndex - index) {
+				throw new GateRuntimeException("cannot load document features " + index + " to " + endIndex
+						+ ", got " + windowFeatures.size() + " feature maps");
+			}
+			for (FeatureMap features : windowFeatures) {
+				if (features != null) {
+					setSourceUrlFeature(features);
+				}
+				documentFeatures.add(features);
+			}
+			index = endIndex;
+		}
+		return documentFeatures;
+	}
+
+	private List<FeatureMap> loadDocumentFeaturesWindow(int fromIndex, int toIndex) throws Exception {
+		List<FeatureMap> windowFeatures;
+		synchronized (backendLock) {
+			long startNanos = System.nanoTime();
+			windowFeatures = loadDocumentFeatures(fromIndex, toIndex);
+			if (windowFeatures != null) {
+				metrics.loadDocumentFeatures.record(toIndex - fromIndex, startNanos);
+				return windowFeatures;
+			}
+		}
+		List<Document> windowDocuments;
+		synchronized (backendLock) {
+			long startNanos = System.nanoTime();
+			windowDocuments = loadDocuments(fromIndex, toIndex);
+			metrics.loadDocument.record(toIndex - fromIndex, startNanos);
+		}
+		windowFeatures = new ArrayList<>(windowDocuments.size());
+		for (Document document : windowDocuments) {
+			if (document == null) {
+				windowFeatures.add(null);
+			} else {
+				windowFeatures.add(document.getFeatures());
+				Factory.deleteResource(document);
+			}
+		}
+		return windowFeatures;
+	}
+
+	private boolean isLazy() {
+		return lazyDocuments != null && lazyDocuments;
+	}
+
+	/**
+	 * @return a lazy document with name and features, or null if the backend
+	 *         does not support lazy documents
+	 */
+	private Document loadLazyDocument(int index) throws Exception {
+		FeatureMap features;
+		synchronized (backendLock) {
+			features = loadDocumentFeatures(index);
+		}
+		if (features == null) {
+			return null;
+		}
+		return createLazyDocument(index, features);
+	}
+
+	/**
+	 * @return the lazy documents of the range, or null if the backend does not
+	 *         support lazy documents
+	 */
+	private List<Document> loadLazyDocuments(int fromIndex, int toIndex) throws Exception {
+		List<FeatureMap> documentFeatures;
+		synchronized (backendLock) {
+			long startNanos = System.nanoTime();
+			documentFeatures = loadDocumentFeatures(fromIndex, toIndex);
+			if (documentFeatures != null) {
+				metrics.loadDocumentFeatures.record(toIndex - fromIndex, startNanos);
+			}
+		}
+		if (documentFeatures == null) {
+			return null;
+		}
+		List<Document> documents = new ArrayList<>(toIndex - fromIndex);
+		int index = fromIndex;
+		for (FeatureMap features : documentFeatures) {
+			documents.add(features != null ? createLazyDocument(index, features) : null);
+			index++;
+		}
+		return documents;
+	}
+
+	private Document createLazyDocument(int index, FeatureMap features) throws Exception {
+		FeatureMap params = Factory.newFeatureMap();
+		params.put(Document.DOCUMENT_STRING_CONTENT_PARAMETER_NAME, "");
+		LazyDocument document = (LazyDocument) Factory.createResource(LazyDocument.class.getName(), params,
+				features, getDocumentName(index));
+		document.setCorpus(this);
+		return document;
+	}
+
+	/**
+	 * loads content and all annotation sets of a lazy document from the shared
+	 * cache or the backend, called by {@link LazyDocument#materialize()}.
+	 * Features added by the document format are added, if the document has no
+	 * such feature yet, so the document equals the eagerly loaded one. Loading
+	 * is not a change of the document.
+	 */
+	final synchronized void materializeDocument(LazyDocument document) {
+		Integer index = loadedDocumentIndexes.get(document);
+		if (index == null) {
+			throw new GateRuntimeException(
+					"document " + document.getName() + " was unloaded before its content was loaded");
+		}
+		Document loadedDocument = loadSharedCachedDocument(index);
+		if (loadedDocument == null) {
+			try {
+				synchronized (backendLock) {
+					long startNanos = System.nanoTime();
+					loadedDocument = loadDocument(index);
+					metrics.loadDocument.record(1, startNanos);
+				}
+			} catch (Exception e) {
+				throw new GateRuntimeException("cannot load document " + index, e);
+			}
+		}
+		if (loadedDocument == null) {
+			throw new GateRuntimeException("document " + index + " does not exist anymore");
+		}
+		if (sharedCacheId != 0 && !isSharedCached(index)) {
+			cacheSharedDocument(index, loadedDocument);
+		}
+		DocumentChangeObserver documentChangeObserver = documentChangeObservers.get(document);
+		boolean changed = documentChangeObserver != null && documentChangeObserver.changed;
+		try {
+			FeatureMap loadedFeatures = Factory.newFeatureMap();
+			loadedFeatures.putAll(loadedDocument.getFeatures());
+			loadedDocument.getFeatures().clear();
+			DocumentUtil.copyDocumentValues(loadedDocument, document, true);
+			for (Entry<Object, Object> feature : loadedFeatures.entrySet()) {
+				if (!document.getFeatures().containsKey(feature.getKey())) {
+					document.getFeatures().put(feature.getKey(), feature.getValue());
+				}
+			}
+		} finally {
+			Factory.deleteResource(loadedDocument);
+		}
+		if (documentChangeObserver != null) {
+			documentChangeObserver.changed = changed;
+			documentChangeObserver.observeContent();
+		}
+		documentBytesLoaded(document);
+	}
+
+	private boolean isSharedCached(int index) {
+		return sharedCacheId != 0 && SharedDocumentCache.INSTANCE.containsKey(sharedCacheId, index);
+	}
+
+	/**
+	 * @return the document from the shared cache, or null if it is not cached
+	 */
+	private Document loadSharedCachedDocument(int index) {
+		if (sharedCacheId == 0) {
+			return null;
+		}
+		InputStream in = SharedDocumentCache.INSTANCE.get(sharedCacheId, index);
+		if (in == null) {
+			return null;
+		}
+		try {
+			return readDocument(in, false);
+		} catch (Exception e) {
+			logger.warn("cannot read cached document " + index + ", loading it from the backend", e);
+			SharedDocumentCache.INSTANCE.remove(sharedCacheId, index);
+			return null;
 		}
-		loadedDocuments.put(index, document);
 	}
 
-	@Override
-	public final boolean isDocumentLoaded(int index) {
-		checkLoaded();
-		checkIndex(index);
-		return loadedDocuments.containsKey(index);
+	/**
+	 * reads a document serialized by {@link DocumentUtil#writeDocument}, used by
+	 * backends instead of DocumentUtil, so the read is recorded as JFR event
+	 */
+	protected static Document readDocument(InputStream in, boolean compressed) throws IOException, GateException {
+		DocumentReadEvent event = null;
+		CountingInputStream countingIn = null;
+		if (FlightRecorder.AVAILABLE) {
+			event = new DocumentReadEvent();
+			event.begin();
+			if (event.isEnabled()) {
+				countingIn = new CountingInputStream(in);
+				in = countingIn;
+			}
+		}
+		Document document = DocumentUtil.readDocument(in, compressed);
+		if (event != null && event.shouldCommit()) {
+			event.documentName = document.getName();
+			event.bytes = countingIn != null ? countingIn.getByteCount() : 0;
+			event.compressed = compressed;
+			event.commit();
+		}
+		return document;
 	}
 
-	public final boolean isDocumentNameLoaded(int index) {
-		checkLoaded();
-		checkIndex(index);
-		return loadedDocumentNames.containsKey(index);
+	private void cacheSharedDocument(int index, Document document) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			DocumentUtil.writeDocument(document, out, false);
+			SharedDocumentCache.INSTANCE.put(sharedCacheId, index, out.toByteArray());
+		} catch (IOException e) {
+			logger.warn("cannot cache document " + index, e);
+			SharedDocumentCache.INSTANCE.remove(sharedCacheId, index);
+		}
 	}
 
-	@Override
-	public final void unloadDocument(Document document) {
-		checkLoaded();
-		if (document == null) {
-			return;
+	private void removeSharedCachedDocument(int index) {
+		if (sharedCacheId != 0) {
+			SharedDocumentCache.INSTANCE.remove(sharedCacheId, index);
 		}
-		if (this.contains(document)) {
-			if (!readonlyDocuments && hasDocumentChanged(document)) {
-				try {
-					saveDocument(document);
-				} catch (Exception e) {
-					throw new GateRuntimeException("cannot update document " + document, e);
-				}
-			}
-			int index = this.indexOf(document);
-			loadedDocuments.remove(index);
-			documentChangeObservers.remove(document).unregisterDocument();
-			documentUnloaded(index, document);
+	}
+
+	/**
+	 * the shared cache is keyed by index, so all documents of the corpus are
+	 * removed, when indexes shift
+	 */
+	private void clearSharedCachedDocuments() {
+		if (sharedCacheId != 0) {
+			SharedDocumentCache.INSTANCE.removeCorpus(sharedCacheId);
 		}
 	}
 
-	@Override
-	public final List<String> getDocumentNames() {
-		checkLoaded();
-		List<String> documentNames = new ArrayList<>();
-		for (int i = 0; i < size(); i++) {
-			String documentName = getDocumentName(i);
-			documentNames.add(documentName);
+	/**
+	 * estimates the heap bytes of a loaded document for maxLoadedBytes, backends
+	 * may override this if they know a better estimate
+	 */
+	protected long estimateDocumentBytes(Document document) {
+		long bytes = DOCUMENT_BYTES;
+		if (document instanceof LazyDocument && !((LazyDocument) document).isMaterialized()) {
+			return bytes;
 		}
-		return documentNames;
+		if (document.getContent() != null) {
+			bytes += 2 * document.getContent().size();
+		}
+		bytes += ANNOTATION_BYTES * document.getAnnotations().size();
+		for (String annotationSetName : document.getAnnotationSetNames()) {
+			bytes += ANNOTATION_BYTES * document.getAnnotations(annotationSetName).size();
+		}
+		return bytes;
 	}
 
-	@Override
-	public final String getDocumentName(int index) {
+	/**
+	 * @return the estimated bytes of all loaded documents, if maxLoadedBytes is
+	 *         set
+	 */
+	public final synchronized long getLoadedBytes() {
 		checkLoaded();
-		checkIndex(index);
-		if (loadedDocumentNames.containsKey(index)) {
-			updateLruDocumentNameIndex(index);
-			return loadedDocumentNames.get(index);
-		}
+		return loadedBytes;
+	}
 
-		String documentName;
-		try {
-			documentName = loadDocumentName(index);
-		} catch (Exception e) {
-			throw new GateRuntimeException("cannot load document name " + index, e);
+	private void documentBytesLoaded(Document document) {
+		if (maxLoadedBytes != null && maxLoadedBytes > 0) {
+			long bytes = estimateDocumentBytes(document);
+			Long oldBytes = loadedDocumentBytes.put(document, bytes);
+			loadedBytes += bytes - (oldBytes != null ? oldBytes : 0);
 		}
+	}
 
-		if (documentName == null) {
-			return null;
+	private void documentBytesUnloaded(Document document) {
+		Long bytes = loadedDocumentBytes.remove(document);
+		if (bytes != null) {
+			loadedBytes -= bytes;
 		}
-		documentNameLoaded(index, documentName);
-		return documentName;
 	}
 
-	@Override
-	public final Document get(int index) {
-		checkLoaded();
-		checkIndex(index);
-		if (loadedDocuments.containsKey(index)) {
-			return loadedDocuments.get(index);
-		}
+	private boolean isLoadedLimitExceeded() {
+		return (maxLoadedDocuments != null && maxLoadedDocuments > 0 && loadedDocuments.size() > maxLoadedDocuments)
+				|| (maxLoadedBytes != null && maxLoadedBytes > 0 && loadedBytes > maxLoadedBytes);
+	}
 
-		Document document;
-		try {
-			document = loadDocument(index);
-		} catch (Exception e) {
-			throw new GateRuntimeException("cannot load document " + index, e);
+	/**
+	 * unloads and deletes the least recently used documents outside of the
+	 * range, until the limits are met again. Changed documents are saved by
+	 * unloading. Documents consumed by a spliterator are kept.
+	 */
+	private void evictLoadedDocuments(int fromIndex, int toIndex) {
+		if (!isLoadedLimitExceeded()) {
+			return;
+		}
+		for (int index : loadedDocuments.indexes()) {
+			if (!isLoadedLimitExceeded()) {
+				return;
+			}
+			if (index >= fromIndex && index < toIndex) {
+				continue;
+			}
+			Document document = loadedDocuments.get(index);
+			if (document == null) {
+				loadedDocuments.remove(index);
+			} else if (consumedDocuments.contains(document)) {
+				continue;
+			} else if (!readonlyDocuments || !hasDocumentChanged(document)) {
+				unloadDocument(document);
+				Factory.deleteResource(document);
+			}
 		}
+	}
 
+	private Document documentLoadedFromBackend(int index, Document document) {
 		if (document == null) {
 			return null;
 		}
-		if (document.getFeatures().getOrDefault("gate.SourceURL", "created from String")
-				.equals("created from String")) {
-			document.getFeatures().put("gate.SourceURL", "created from " + this.getClass().getSimpleName());
+		setSourceUrlFeature(document.getFeatures());
+		if (sharedCacheId != 0 && !isSharedCached(index)
+				&& (!(document instanceof LazyDocument) || ((LazyDocument) document).isMaterialized())) {
+			// cached as loaded, so changes of readonly documents are never shared
+			cacheSharedDocument(index, document);
 		}
 		documentLoaded(index, document);
 		return document;
 	}
 
+	private void setSourceUrlFeature(FeatureMap features) {
+		if (features.getOrDefault("gate.SourceURL", "created from String").equals("created from String")) {
+			features.put("gate.SourceURL", "created from " + this.getClass().getSimpleName());
+		}
+	}
+
 	@Override
-	public final int size() {
+	public final synchronized int size() {
 		checkLoaded();
+		if (size == null && estimateSize != null && estimateSize) {
+			Integer estimatedSize = null;
+			try {
+				synchronized (backendLock) {
+					estimatedSize = loadEstimatedSize();
+				}
+			} catch (Exception e) {
+				logger.warn("cannot estimate corpus size", e);
+			}
+			if (estimatedSize != null) {
+				size = estimatedSize;
+				sizeEstimated = true;
+				if (isConcurrentSizeLoadingSupported()) {
+					loadExactSize();
+				}
+			}
+		}
 		if (size == null) {
 			try {
-				size = loadSize();
+				synchronized (backendLock) {
+					long startNanos = System.nanoTime();
+					size = loadSize();
+					metrics.loadSize.record(1, startNanos);
+				}
 			} catch (Exception e) {
 				throw new GateRuntimeException("cannot load corpus size", e);
 			}
@@ -659,64 +2186,151 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 		return size;
 	}
 
+	/**
+	 * @return true if size() is only an estimate, until the exact size is loaded
+	 *         in background
+	 */
+	public final synchronized boolean isSizeEstimated() {
+		return sizeEstimated;
+	}
+
+	/**
+	 * loads the exact size in background, without blocking other backend calls
+	 */
+	private void loadExactSize() {
+		CompletableFuture<Integer> exactSize = new CompletableFuture<>();
+		this.exactSize = exactSize;
+		if (sizeExecutor == null) {
+			sizeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "VirtualCorpus size " + getName());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		sizeExecutor.execute(() -> {
+			try {
+				long startNanos = System.nanoTime();
+				int loadedSize = loadSize();
+				metrics.loadSize.record(1, startNanos);
+				exactSize.complete(loadedSize);
+			} catch (Throwable e) {
+				exactSize.completeExceptionally(e);
+				logger.warn("cannot load corpus size", e);
+				return;
+			}
+			exactSizeLoaded();
+		});
+	}
+
+	private synchronized void exactSizeLoaded() {
+		if (loaded && sizeEstimated) {
+			updateSize(exactSize.join());
+		}
+	}
+
+	/**
+	 * waits for the exact size, if size() is only an estimate. Must be called
+	 * before the size is changed or relied on for all indexes.
+	 */
+	private void awaitExactSize() {
+		size();
+		if (sizeEstimated && exactSize == null) {
+			int loadedSize;
+			try {
+				synchronized (backendLock) {
+					long startNanos = System.nanoTime();
+					loadedSize = loadSize();
+					metrics.loadSize.record(1, startNanos);
+				}
+			} catch (Exception e) {
+				throw new GateRuntimeException("cannot load corpus size", e);
+			}
+			updateSize(loadedSize);
+		} else if (sizeEstimated) {
+			try {
+				updateSize(exactSize.get());
+			} catch (ExecutionException e) {
+				throw new GateRuntimeException("cannot load corpus size", e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new GateRuntimeException("interrupted while loading corpus size", e);
+			}
+		}
+	}
+
+	/**
+	 * replaces the estimated size and signals the change to the
+	 * {@link CorpusSizeListener}s. modCount is not changed, as iterators check
+	 * the size anyway.
+	 */
+	private void updateSize(int exactSize) {
+		int estimatedSize = size;
+		size = exactSize;
+		sizeEstimated = false;
+		this.exactSize = null;
+		if (estimatedSize != exactSize) {
+			fireCorpusSizeChanged(estimatedSize, exactSize);
+		}
+	}
+
 	@Override
-	public final boolean isEmpty() {
+	public final synchronized boolean isEmpty() {
 		return size() == 0;
 	}
 
 	@Override
-	public final int indexOf(Object object) {
+	public final synchronized int indexOf(Object object) {
 		checkLoaded();
-		if (object instanceof Document) {
-			return loadedDocuments.entrySet().stream().filter(e -> e.getValue().equals(object)).map(e -> e.getKey())
-					.min(Integer::compareTo).orElse(-1);
-		}
-		return -1;
+		Integer index = loadedDocumentIndexes.get(object);
+		return index != null ? index : -1;
 	}
 
+	/**
+	 * a document can only be loaded at one index, so this is the same as
+	 * {@link #indexOf(Object)}
+	 */
 	@Override
-	public final int lastIndexOf(Object object) {
-		checkLoaded();
-		if (object instanceof Document) {
-			return loadedDocuments.entrySet().stream().filter(e -> e.getValue().equals(object)).map(e -> e.getKey())
-					.max(Integer::compareTo).orElse(-1);
-		}
-		return -1;
+	public final synchronized int lastIndexOf(Object object) {
+		return indexOf(object);
 	}
 
 	@Override
-	public final boolean contains(Object object) {
+	public final synchronized boolean contains(Object object) {
 		checkLoaded();
-		if (object instanceof Document) {
-			return loadedDocuments.containsValue(object);
-		}
-		return false;
+		return loadedDocumentIndexes.containsKey(object);
 	}
 
 	@Override
-	public final boolean containsAll(Collection<?> collection) {
+	public final synchronized boolean containsAll(Collection<?> collection) {
 		checkLoaded();
-		return loadedDocuments.values().containsAll(collection);
+		for (Object object : collection) {
+			if (!loadedDocumentIndexes.containsKey(object)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
-	public final boolean add(Document document) {
+	public final synchronized boolean add(Document document) {
+		checkMutable();
 		addAll(size(), toList(document));
 		return true;
 	}
 
 	@Override
-	public final void add(int index, Document document) {
+	public final synchronized void add(int index, Document document) {
 		addAll(index, toList(document));
 	}
 
 	@Override
-	public final boolean addAll(Collection<? extends Document> documents) {
+	public final synchronized boolean addAll(Collection<? extends Document> documents) {
+		checkMutable();
 		return addAll(size(), documents);
 	}
 
 	@Override
-	public final boolean addAll(int index, Collection<? extends Document> documents) {
+	public final synchronized boolean addAll(int index, Collection<? extends Document> documents) {
 		checkMutable();
 		checkLoaded();
 		checkIndexAdd(index);
@@ -724,45 +2338,79 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 			return false;
 		}
 
+		flushWriteBehindQueue();
+		discardPrefetchedDocuments();
+		backendVersion++;
+		structureLock.writeLock().lock();
 		try {
-			addDocuments(index, documents);
+			synchronized (backendLock) {
+				addDocuments(index, documents);
+			}
 		} catch (Exception e) {
 			throw new GateRuntimeException("cannot add documents " + index + " " + documents, e);
+		} finally {
+			structureLock.writeLock().unlock();
 		}
 
-		if (index < size() && !loadedDocumentNames.isEmpty()) {
-			shiftIndexMap(loadedDocumentNames, index, loadedDocumentNames.lastKey() + 1, documents.size());
+		documentNameCache.shiftIndexes(index, documents.size());
+		clearSharedCachedDocuments();
+		loadedDocuments.shiftIndexes(index, documents.size(), this::loadedDocumentMoved);
+		int documentIndex = index;
+		for (Document document : documents) {
+			if (document != null) {
+				loadedDocumentIndexes.put(document, documentIndex);
+				documentBytesLoaded(document);
+			}
+			loadedDocuments.put(documentIndex++, document);
 		}
-		addAllToIndexMap(loadedDocuments, index, documents);
 		size += documents.size();
 		modCount++;
 
 		for (Document document : documents) {
 			fireDocumentAdded(index++, document);
-			documentChangeObservers.put(document, new DocumentChangeObserver(document));
+			registerDocumentChangeObserver(document);
 		}
 		return true;
 	}
 
 	@Override
-	public final Document set(int index, Document document) {
+	public final synchronized Document set(int index, Document document) {
 		checkWritableDocuments();
 		checkLoaded();
 		checkIndex(index);
 
+		flushWriteBehindQueue();
+		discardPrefetchedDocuments();
+		backendVersion++;
+		structureLock.writeLock().lock();
 		try {
-			setDocument(index, document);
+			DocumentSaveEvent event = beginSaveEvent();
+			synchronized (backendLock) {
+				long startNanos = System.nanoTime();
+				setDocument(index, document);
+				metrics.setDocument.record(1, startNanos);
+			}
+			commitSaveEvent(event, Collections.singletonMap(index, document), false);
 		} catch (Exception e) {
 			throw new GateRuntimeException("cannot set document " + index + " " + document, e);
+		} finally {
+			structureLock.writeLock().unlock();
 		}
 
+		removeSharedCachedDocument(index);
 		Document oldDocument;
 		if (document != null) {
 			oldDocument = loadedDocuments.put(index, document);
-			loadedDocumentNames.put(index, document.getName());
+			documentNameCache.put(index, document.getName());
+			loadedDocumentIndexes.put(document, index);
+			documentBytesLoaded(document);
 		} else {
 			oldDocument = loadedDocuments.remove(index);
-			loadedDocumentNames.remove(index);
+			documentNameCache.remove(index);
+		}
+		if (oldDocument != null && oldDocument != document) {
+			loadedDocumentIndexes.remove(oldDocument);
+			documentBytesUnloaded(oldDocument);
 		}
 		fireDocumentRemoved(index, oldDocument);
 		fireDocumentAdded(index, document);
@@ -770,24 +2418,33 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 	}
 
 	@Override
-	public final Document remove(int index) {
+	public final synchronized Document remove(int index) {
 		checkMutable();
 		checkLoaded();
 		checkIndex(index);
 		Document document = get(index);
 
 		Set<Integer> indexes = Collections.unmodifiableSet(Stream.of(index).collect(Collectors.toSet()));
+		flushWriteBehindQueue();
+		discardPrefetchedDocuments();
+		backendVersion++;
+		structureLock.writeLock().lock();
 		try {
-			deleteDocuments(indexes);
+			synchronized (backendLock) {
+				deleteDocuments(indexes);
+			}
 		} catch (Exception e) {
 			throw new GateRuntimeException("cannot delete document " + index + " " + document, e);
+		} finally {
+			structureLock.writeLock().unlock();
 		}
 
-		if (!loadedDocumentNames.isEmpty()) {
-			removeFromIndexMap(loadedDocumentNames, index, loadedDocumentNames.lastKey() + 1, indexes);
-		}
-		if (!loadedDocuments.isEmpty()) {
-			removeFromIndexMap(loadedDocuments, index, loadedDocuments.lastKey() + 1, indexes);
+		documentNameCache.removeIndexes(indexes);
+		clearSharedCachedDocuments();
+		loadedDocuments.removeIndexes(indexes, this::loadedDocumentMoved);
+		if (document != null) {
+			loadedDocumentIndexes.remove(document);
+			documentBytesUnloaded(document);
 		}
 		size--;
 		modCount++;
@@ -797,7 +2454,7 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 	}
 
 	@Override
-	public final boolean remove(Object object) {
+	public final synchronized boolean remove(Object object) {
 		checkMutable();
 		checkLoaded();
 		if (!this.contains(object)) {
@@ -810,20 +2467,20 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 	}
 
 	@Override
-	public final boolean removeAll(Collection<?> collection) {
+	public final synchronized boolean removeAll(Collection<?> collection) {
 		checkMutable();
 		checkLoaded();
-		Set<Integer> indexes = Collections.unmodifiableSet(loadedDocuments.entrySet().stream()
-				.filter(e -> collection.contains(e.getValue())).map(e -> e.getKey()).collect(Collectors.toSet()));
+		Set<Integer> indexes = Collections.unmodifiableSet(collection.stream().map(loadedDocumentIndexes::get)
+				.filter(index -> index != null).collect(Collectors.toSet()));
 		return removeAll(indexes);
 	}
 
 	@Override
-	public final boolean retainAll(Collection<?> collection) {
+	public final synchronized boolean retainAll(Collection<?> collection) {
 		checkMutable();
 		checkLoaded();
-		Set<Integer> indexes = Collections.unmodifiableSet(loadedDocuments.entrySet().stream()
-				.filter(e -> !collection.contains(e.getValue())).map(e -> e.getKey()).collect(Collectors.toSet()));
+		Set<Integer> indexes = Collections.unmodifiableSet(Arrays.stream(loadedDocuments.indexes())
+				.filter(index -> !collection.contains(loadedDocuments.get(index))).boxed().collect(Collectors.toSet()));
 		return removeAll(indexes);
 	}
 
@@ -832,21 +2489,30 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 			return false;
 		}
 
+		flushWriteBehindQueue();
+		discardPrefetchedDocuments();
+		backendVersion++;
+		structureLock.writeLock().lock();
 		try {
-			deleteDocuments(indexes);
+			synchronized (backendLock) {
+				deleteDocuments(indexes);
+			}
 		} catch (Exception e) {
 			throw new GateRuntimeException("cannot delete documents " + indexes, e);
+		} finally {
+			structureLock.writeLock().unlock();
 		}
 
-		Map<Integer, Document> removeDocuments = removeFromIndexMap(loadedDocuments, indexes);
-		Integer firstIndex = removeDocuments.keySet().stream().min(Integer::compareTo).get();
-		removeFromIndexMap(loadedDocumentNames, firstIndex, loadedDocumentNames.lastKey() + 1, indexes);
+		IndexMap<Document> removeDocuments = loadedDocuments.removeIndexes(indexes, this::loadedDocumentMoved);
+		documentNameCache.removeIndexes(indexes);
+		clearSharedCachedDocuments();
 
-		for (Entry<Integer, Document> entry : removeDocuments.entrySet()) {
-			Integer index = entry.getKey();
-			Document document = entry.getValue();
+		for (int index : removeDocuments.sortedIndexes()) {
+			Document document = removeDocuments.get(index);
+			loadedDocumentIndexes.remove(document);
 			fireDocumentRemoved(index, document);
-			documentChangeObservers.remove(document).unregisterDocument();
+			unregisterDocumentChangeObserver(document);
+			documentBytesUnloaded(document);
 		}
 		size();
 		size -= indexes.size();
@@ -856,32 +2522,49 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 	}
 
 	@Override
-	public final void clear() {
+	public final synchronized void clear() {
 		checkMutable();
 		checkLoaded();
 
+		flushWriteBehindQueue();
+		discardPrefetchedDocuments();
+		backendVersion++;
+		structureLock.writeLock().lock();
 		try {
-			deleteAllDocuments();
+			synchronized (backendLock) {
+				deleteAllDocuments();
+			}
 		} catch (Exception e) {
 			throw new GateRuntimeException("cannot delete all documents", e);
+		} finally {
+			structureLock.writeLock().unlock();
 		}
 
-		TreeMap<Integer, Document> reversed = new TreeMap<>(Collections.reverseOrder());
-		reversed.putAll(loadedDocuments);
+		IndexMap<Document> removeDocuments = loadedDocuments;
+		int[] indexes = removeDocuments.sortedIndexes();
 
-		loadedDocuments.clear();
-		loadedDocumentNames.clear();
+		loadedDocuments = new IndexMap<>();
+		documentNameCache.clear();
+		clearSharedCachedDocuments();
+		loadedDocumentIndexes.clear();
+		loadedDocumentBytes.clear();
+		loadedBytes = 0;
 
-		for (Entry<Integer, Document> entry : reversed.entrySet()) {
-			Integer index = entry.getKey();
-			Document document = entry.getValue();
+		for (int i = indexes.length - 1; i >= 0; i--) {
+			int index = indexes[i];
+			Document document = removeDocuments.get(index);
 			fireDocumentRemoved(index, document);
-			documentChangeObservers.remove(document).unregisterDocument();
+			unregisterDocumentChangeObserver(document);
 		}
 		size = 0;
 		modCount++;
 	}
 
+	/**
+	 * @deprecated not used by VirtualCorpus anymore, which keeps its index maps
+	 *             in an {@link IndexMap}
+	 */
+	@Deprecated
 	public static final <E> boolean addAllToIndexMap(SortedMap<Integer, E> map, Integer index,
 			Collection<? extends E> c) {
 		if (c.isEmpty()) {
@@ -899,6 +2582,11 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 		return true;
 	}
 
+	/**
+	 * @deprecated not used by VirtualCorpus anymore, which keeps its index maps
+	 *             in an {@link IndexMap}
+	 */
+	@Deprecated
 	public static final <E> void shiftIndexMap(Map<Integer, E> map, Integer startIndex, Integer endIndex,
 			Integer shift) {
 		Integer overlapping = startIndex + shift - 1;
@@ -915,6 +2603,11 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 		}
 	}
 
+	/**
+	 * @deprecated not used by VirtualCorpus anymore, which keeps its index maps
+	 *             in an {@link IndexMap}
+	 */
+	@Deprecated
 	public static final <E> Map<Integer, E> removeFromIndexMap(SortedMap<Integer, E> map, Set<Integer> indexes) {
 		Map<Integer, E> removeElements = indexes.stream().filter(index -> map.containsKey(index))
 				.collect(Collectors.toMap(index -> index, index -> map.get(index), (k1, k2) -> {
@@ -928,6 +2621,11 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 		return removeElements;
 	}
 
+	/**
+	 * @deprecated not used by VirtualCorpus anymore, which keeps its index maps
+	 *             in an {@link IndexMap}
+	 */
+	@Deprecated
 	public static final <E> void removeFromIndexMap(Map<Integer, E> map, Integer startIndex, Integer endIndex,
 			Set<Integer> indexes) {
 		Integer newIndex = startIndex;
@@ -962,6 +2660,7 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 		if (immutableCorpus) {
 			throw new IllegalStateException("corpus is immutable");
 		}
+		awaitExactSize();
 	}
 
 	private void checkWritableDocuments() {
@@ -976,6 +2675,12 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 		}
 	}
 
+	private void checkRange(int fromIndex, int toIndex) {
+		if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + size());
+		}
+	}
+
 	private void checkIndexAdd(int index) {
 		if (index < 0 || index > size()) {
 			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
@@ -989,8 +2694,9 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 	}
 
 	@Override
-	public final Object[] toArray() {
+	public final synchronized Object[] toArray() {
 		checkLoaded();
+		awaitExactSize();
 		Object[] array = new Object[size()];
 		for (int i = 0; i < size(); i++) {
 			Document document = get(i);
@@ -1001,8 +2707,9 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 
 	@Override
 	@SuppressWarnings("unchecked")
-	public <T> T[] toArray(T[] a) {
+	public synchronized <T> T[] toArray(T[] a) {
 		checkLoaded();
+		awaitExactSize();
 		if (a.length < size)
 			a = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
 
@@ -1017,20 +2724,147 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 		return a;
 	}
 
+	/**
+	 * loads the documents following fromIndex in background, if prefetchCount is
+	 * set. Documents are requested in windows via
+	 * {@link #loadDocuments(int, int)}, once at least half of the prefetch range
+	 * is missing. Prefetched documents outside of the new range are discarded.
+	 */
+	private synchronized void prefetchDocuments(int fromIndex) {
+		if (prefetchCount == null || prefetchCount <= 0 || isLazy()) {
+			return;
+		}
+		deleteDiscardedDocuments(false);
+		int toIndex = Math.min(fromIndex + prefetchCount, size());
+		for (int index : prefetchedDocuments.indexes()) {
+			if (index < fromIndex || index >= toIndex) {
+				discardPrefetchedDocument(index);
+			}
+		}
+		if (prefetchExecutor == null) {
+			prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "VirtualCorpus prefetch " + getName());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		int minWindowSize = Math.max(1, prefetchCount / 2);
+		int index = fromIndex;
+		while (index < toIndex) {
+			if (loadedDocuments.containsKey(index) || prefetchedDocuments.containsKey(index)
+					|| isSavePending(index) || isSharedCached(index)) {
+				index++;
+				continue;
+			}
+			int endIndex = index + 1;
+			while (endIndex < toIndex && !loadedDocuments.containsKey(endIndex)
+					&& !prefetchedDocuments.containsKey(endIndex) && !isSavePending(endIndex)
+					&& !isSharedCached(endIndex)) {
+				endIndex++;
+			}
+			if (index == fromIndex || endIndex - index >= minWindowSize) {
+				prefetchWindow(index, endIndex);
+			}
+			index = endIndex;
+		}
+	}
+
+	private void prefetchWindow(int fromIndex, int toIndex) {
+		CompletableFuture<List<Document>> window = CompletableFuture.supplyAsync(() -> {
+			try {
+				synchronized (backendLock) {
+					long startNanos = System.nanoTime();
+					List<Document> documents = loadDocuments(fromIndex, toIndex);
+					metrics.loadDocument.record(toIndex - fromIndex, startNanos);
+					return documents;
+				}
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}, prefetchExecutor);
+		for (int index = fromIndex; index < toIndex; index++) {
+			int offset = index - fromIndex;
+			prefetchedDocuments.put(index, window.thenApply(documents -> documents.get(offset)));
+		}
+	}
+
+	private boolean isSavePending(int index) {
+		return writeBehindQueue != null && writeBehindQueue.isPending(index);
+	}
+
+	private void flushWriteBehindQueue() {
+		if (writeBehindQueue != null) {
+			writeBehindQueue.flush();
+		}
+	}
+
+	private void discardPrefetchedDocuments() {
+		for (int index : prefetchedDocuments.indexes()) {
+			discardPrefetchedDocument(index);
+		}
+	}
+
+	/**
+	 * the window of a prefetched document may still be loading, so the document
+	 * is deleted later by {@link #deleteDiscardedDocuments(boolean)} in the
+	 * thread using the corpus
+	 */
+	private void discardPrefetchedDocument(int index) {
+		CompletableFuture<Document> prefetchedDocument = prefetchedDocuments.remove(index);
+		if (prefetchedDocument != null) {
+			discardedDocuments.add(prefetchedDocument);
+		}
+	}
+
+	private void deleteDiscardedDocuments(boolean wait) {
+		Iterator<CompletableFuture<Document>> iterator = discardedDocuments.iterator();
+		while (iterator.hasNext()) {
+			CompletableFuture<Document> discardedDocument = iterator.next();
+			if (!wait && !discardedDocument.isDone()) {
+				continue;
+			}
+			iterator.remove();
+			try {
+				Document document = discardedDocument.get();
+				if (document != null) {
+					Factory.deleteResource(document);
+				}
+			} catch (Exception e) {
+				logger.debug("discarded prefetched document failed to load", e);
+			}
+		}
+	}
+
+	@Override
+	public final synchronized Iterator<Document> iterator() {
+		checkLoaded();
+		VirtualCorpusIterator iterator = new VirtualCorpusIterator(this);
+		iterator.skipProcessed = true;
+		return iterator;
+	}
+
+	/**
+	 * the spliterator splits the corpus by index ranges and loads the documents
+	 * in chunks, so parallel streams can be used. Documents loaded by the
+	 * spliterator are unloaded and deleted after they were consumed. Like the
+	 * iterator, it skips documents already processed according to the
+	 * checkpoint.
+	 */
 	@Override
-	public final Iterator<Document> iterator() {
+	public final synchronized Spliterator<Document> spliterator() {
 		checkLoaded();
-		return new VirtualCorpusIterator(this);
+		awaitExactSize();
+		return new VirtualCorpusSpliterator(this, 0, size());
 	}
 
 	@Override
-	public final ListIterator<Document> listIterator(int i) {
+	public final synchronized ListIterator<Document> listIterator(int i) {
 		checkLoaded();
 		return new VirtualCorpusListIterator(this, i);
 	}
 
 	@Override
-	public final ListIterator<Document> listIterator() {
+	public final synchronized ListIterator<Document> listIterator() {
 		checkLoaded();
 		return listIterator(0);
 	}
@@ -1040,6 +2874,8 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 		protected int cursor = 0;
 		protected int lastRet = -1;
 		protected int expectedModCount;
+		protected boolean skipProcessed;
+		private int processedCursor = 0;
 
 		public VirtualCorpusIterator(VirtualCorpus corpus) {
 			this.corpus = corpus;
@@ -1048,17 +2884,32 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 
 		@Override
 		public boolean hasNext() {
-			return cursor != corpus.size();
+			synchronized (corpus) {
+				if (skipProcessed) {
+					lastReturnedProcessed();
+					cursor = corpus.nextUnprocessedIndex(cursor);
+				}
+				if (cursor >= corpus.size()) {
+					// an estimated size may be too small
+					corpus.awaitExactSize();
+				}
+				return cursor < corpus.size();
+			}
 		}
 
 		@Override
 		public Document next() {
 			checkForComodification();
 			try {
+				if (skipProcessed) {
+					lastReturnedProcessed();
+					cursor = corpus.nextUnprocessedIndex(cursor);
+				}
 				int i = cursor;
 				Document next = corpus.get(i);
 				lastRet = i;
 				cursor = i + 1;
+				corpus.prefetchDocuments(skipProcessed ? corpus.nextUnprocessedIndex(cursor) : cursor);
 				return next;
 			} catch (IndexOutOfBoundsException e) {
 				checkForComodification();
@@ -1083,12 +2934,149 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 			}
 		}
 
+		/**
+		 * the last returned document is processed, once the iterator advances
+		 */
+		private void lastReturnedProcessed() {
+			if (lastRet >= processedCursor) {
+				synchronized (corpus) {
+					corpus.documentProcessed(lastRet);
+				}
+				processedCursor = lastRet + 1;
+			}
+		}
+
 		protected final void checkForComodification() {
 			if (corpus.modCount != expectedModCount)
 				throw new ConcurrentModificationException();
 		}
 	}
 
+	/**
+	 * all access to the corpus is synchronized on the corpus, because the
+	 * splits are traversed by different threads
+	 */
+	private static class VirtualCorpusSpliterator implements Spliterator<Document> {
+		private VirtualCorpus corpus;
+		private int index;
+		private int fence;
+		private int expectedModCount;
+
+		private List<Document> chunk = Collections.emptyList();
+		private boolean[] chunkLoaded;
+		private int chunkIndex;
+
+		public VirtualCorpusSpliterator(VirtualCorpus corpus, int index, int fence) {
+			this.corpus = corpus;
+			this.index = index;
+			this.fence = fence;
+			this.expectedModCount = corpus.modCount;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Document> action) {
+			if (action == null) {
+				throw new NullPointerException();
+			}
+			if (index >= fence) {
+				return false;
+			}
+			Document document;
+			boolean unload;
+			synchronized (corpus) {
+				checkForComodification();
+				if (index >= chunkIndex + chunk.size()) {
+					index = Math.min(corpus.nextUnprocessedIndex(index), fence);
+					if (index >= fence) {
+						return false;
+					}
+					loadChunk();
+				}
+				document = chunk.get(index - chunkIndex);
+				unload = !chunkLoaded[index - chunkIndex];
+				if (document != null && corpus.loadedDocuments.get(index) != document) {
+					// evicted by the loads of other splits
+					document = corpus.get(index);
+					unload = true;
+				}
+				if (document != null) {
+					corpus.consumedDocuments.add(document);
+				}
+			}
+			int consumedIndex = index++;
+			boolean processed = false;
+			try {
+				action.accept(document);
+				processed = true;
+			} finally {
+				synchronized (corpus) {
+					if (processed) {
+						corpus.documentProcessed(consumedIndex);
+					}
+					if (document != null) {
+						corpus.consumedDocuments.remove(document);
+						if (unload) {
+							corpus.unloadDocument(document);
+							Factory.deleteResource(document);
+						}
+					}
+				}
+			}
+			return true;
+		}
+
+		private void loadChunk() {
+			int chunkSize = DOCUMENTS_CHUNK_SIZE;
+			if (corpus.prefetchCount != null && corpus.prefetchCount > 0) {
+				chunkSize = corpus.prefetchCount;
+			}
+			int toIndex = Math.min(Math.min(index + chunkSize, fence), corpus.nextProcessedIndex(index));
+			chunkLoaded = new boolean[toIndex - index];
+			for (int i = index; i < toIndex; i++) {
+				chunkLoaded[i - index] = corpus.isDocumentLoaded(i);
+			}
+			chunkIndex = index;
+			chunk = corpus.get(index, toIndex);
+		}
+
+		/**
+		 * splits off the first half of the remaining range, but not while a loaded
+		 * chunk is consumed
+		 */
+		@Override
+		public Spliterator<Document> trySplit() {
+			if (index < chunkIndex + chunk.size()) {
+				return null;
+			}
+			int middle = (index + fence) >>> 1;
+			if (middle <= index) {
+				return null;
+			}
+			VirtualCorpusSpliterator prefix = new VirtualCorpusSpliterator(corpus, index, middle);
+			prefix.expectedModCount = expectedModCount;
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return fence - index;
+		}
+
+		@Override
+		public int characteristics() {
+			if (corpus.checkpoint != null) {
+				return Spliterator.ORDERED;
+			}
+			return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+		}
+
+		private void checkForComodification() {
+			if (corpus.modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+		}
+	}
+
 	private static class VirtualCorpusListIterator extends VirtualCorpusIterator implements ListIterator<Document> {
 
 		public VirtualCorpusListIterator(VirtualCorpus corpus, int index) {
@@ -1159,12 +3147,12 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 	private List<CorpusListener> corpusListeners = new ArrayList<CorpusListener>();
 
 	@Override
-	public void removeCorpusListener(CorpusListener listener) {
+	public synchronized void removeCorpusListener(CorpusListener listener) {
 		corpusListeners.remove(listener);
 	}
 
 	@Override
-	public void addCorpusListener(CorpusListener listener) {
+	public synchronized void addCorpusListener(CorpusListener listener) {
 		corpusListeners.add(listener);
 	}
 
@@ -1178,7 +3166,23 @@ public abstract class VirtualCorpus extends AbstractLanguageResource implements
 	protected void fireDocumentRemoved(int index, Document document) {
 		CorpusEvent event = new CorpusEvent(this, document, index, CorpusEvent.DOCUMENT_REMOVED);
 		for (CorpusListener listener : corpusListeners) {
-			listener.documentAdded(event);
+			listener.documentRemoved(event);
+		}
+	}
+
+	private List<CorpusSizeListener> corpusSizeListeners = new ArrayList<CorpusSizeListener>();
+
+	public synchronized void removeCorpusSizeListener(CorpusSizeListener listener) {
+		corpusSizeListeners.remove(listener);
+	}
+
+	public synchronized void addCorpusSizeListener(CorpusSizeListener listener) {
+		corpusSizeListeners.add(listener);
+	}
+
+	protected void fireCorpusSizeChanged(int estimatedSize, int exactSize) {
+		for (CorpusSizeListener listener : corpusSizeListeners) {
+			listener.corpusSizeChanged(this, estimatedSize, exactSize);
 		}
 	}
 
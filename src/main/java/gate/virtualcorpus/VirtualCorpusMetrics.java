@@ -0,0 +1,260 @@
+package gate.virtualcorpus;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Counts the backend calls of a {@link VirtualCorpus}, registered as MBean
+ * under gate.virtualcorpus:type=&lt;backend&gt;,name=&lt;corpus
+ * name&gt;,id=&lt;identity&gt; while the corpus is loaded.
+ */
+public final class VirtualCorpusMetrics implements VirtualCorpusMetricsMBean {
+	private static Logger logger = Logger.getLogger(VirtualCorpusMetrics.class);
+
+	private static final int HISTOGRAM_BUCKETS = 40;
+
+	static final class Operation {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+		/**
+		 * @param count      of documents of the call
+		 * @param startNanos {@link System#nanoTime()} before the call
+		 */
+		void record(int count, long startNanos) {
+			long elapsedNanos = System.nanoTime() - startNanos;
+			long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+			int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), HISTOGRAM_BUCKETS - 1);
+			this.count.add(count);
+			calls.increment();
+			nanos.add(elapsedNanos);
+			histogram.incrementAndGet(bucket);
+		}
+
+		private long[] histogram() {
+			long[] histogram = new long[HISTOGRAM_BUCKETS];
+			for (int i = 0; i < histogram.length; i++) {
+				histogram[i] = this.histogram.get(i);
+			}
+			return histogram;
+		}
+
+		private long millis() {
+			return TimeUnit.NANOSECONDS.toMillis(nanos.sum());
+		}
+
+		private void reset() {
+			count.reset();
+			calls.reset();
+			nanos.reset();
+			for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+				histogram.set(i, 0);
+			}
+		}
+	}
+
+	private final VirtualCorpus corpus;
+	final Operation loadDocument = new Operation();
+	final Operation loadDocumentName = new Operation();
+	final Operation loadDocumentFeatures = new Operation();
+	final Operation setDocument = new Operation();
+	final Operation loadSize = new Operation();
+	final LongAdder bytesRead = new LongAdder();
+	final LongAdder bytesWritten = new LongAdder();
+	private ObjectName objectName;
+
+	VirtualCorpusMetrics(VirtualCorpus corpus) {
+		this.corpus = corpus;
+	}
+
+	void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName("gate.virtualcorpus:type=" + corpus.getClass().getSimpleName()
+					+ ",name=" + ObjectName.quote(String.valueOf(corpus.getName())) + ",id="
+					+ Integer.toHexString(System.identityHashCode(corpus)));
+			server.registerMBean(this, objectName);
+			this.objectName = objectName;
+		} catch (JMException | SecurityException e) {
+			logger.warn("cannot register metrics of corpus " + corpus.getName(), e);
+		}
+	}
+
+	void unregister() {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException | SecurityException e) {
+				logger.warn("cannot unregister metrics of corpus " + corpus.getName(), e);
+			}
+			objectName = null;
+		}
+	}
+
+	@Override
+	public String getCorpusName() {
+		return corpus.getName();
+	}
+
+	@Override
+	public String getBackend() {
+		return corpus.getClass().getName();
+	}
+
+	@Override
+	public long getLoadDocumentCount() {
+		return loadDocument.count.sum();
+	}
+
+	@Override
+	public long getLoadDocumentCalls() {
+		return loadDocument.calls.sum();
+	}
+
+	@Override
+	public long getLoadDocumentMillis() {
+		return loadDocument.millis();
+	}
+
+	@Override
+	public long[] getLoadDocumentLatencyHistogram() {
+		return loadDocument.histogram();
+	}
+
+	@Override
+	public long getLoadDocumentNameCount() {
+		return loadDocumentName.count.sum();
+	}
+
+	@Override
+	public long getLoadDocumentNameCalls() {
+		return loadDocumentName.calls.sum();
+	}
+
+	@Override
+	public long getLoadDocumentNameMillis() {
+		return loadDocumentName.millis();
+	}
+
+	@Override
+	public long[] getLoadDocumentNameLatencyHistogram() {
+		return loadDocumentName.histogram();
+	}
+
+	@Override
+	public long getLoadDocumentFeaturesCount() {
+		return loadDocumentFeatures.count.sum();
+	}
+
+	@Override
+	public long getLoadDocumentFeaturesCalls() {
+		return loadDocumentFeatures.calls.sum();
+	}
+
+	@Override
+	public long getLoadDocumentFeaturesMillis() {
+		return loadDocumentFeatures.millis();
+	}
+
+	@Override
+	public long[] getLoadDocumentFeaturesLatencyHistogram() {
+		return loadDocumentFeatures.histogram();
+	}
+
+	@Override
+	public long getSetDocumentCount() {
+		return setDocument.count.sum();
+	}
+
+	@Override
+	public long getSetDocumentCalls() {
+		return setDocument.calls.sum();
+	}
+
+	@Override
+	public long getSetDocumentMillis() {
+		return setDocument.millis();
+	}
+
+	@Override
+	public long[] getSetDocumentLatencyHistogram() {
+		return setDocument.histogram();
+	}
+
+	@Override
+	public long getLoadSizeCalls() {
+		return loadSize.calls.sum();
+	}
+
+	@Override
+	public long getLoadSizeMillis() {
+		return loadSize.millis();
+	}
+
+	@Override
+	public long[] getLoadSizeLatencyHistogram() {
+		return loadSize.histogram();
+	}
+
+	@Override
+	public long getDocumentNameCacheHits() {
+		return corpus.getDocumentNameCacheHits();
+	}
+
+	@Override
+	public long getDocumentNameCacheMisses() {
+		return corpus.getDocumentNameCacheMisses();
+	}
+
+	@Override
+	public long getDocumentNameCacheEvictions() {
+		return corpus.getDocumentNameCacheEvictions();
+	}
+
+	@Override
+	public int getLoadedDocuments() {
+		return corpus.getLoadedDocumentCount();
+	}
+
+	@Override
+	public int getChangedDocuments() {
+		return corpus.getChangedDocumentCount();
+	}
+
+	@Override
+	public long getLoadedBytes() {
+		return corpus.getLoadedBytes();
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	@Override
+	public void reset() {
+		loadDocument.reset();
+		loadDocumentName.reset();
+		loadDocumentFeatures.reset();
+		setDocument.reset();
+		loadSize.reset();
+		bytesRead.reset();
+		bytesWritten.reset();
+	}
+
+}
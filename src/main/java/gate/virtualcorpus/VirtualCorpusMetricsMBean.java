@@ -0,0 +1,76 @@
+package gate.virtualcorpus;
+
+/**
+ * JMX interface of {@link VirtualCorpusMetrics}.
+ *
+ * Latency histograms have one bucket per power of two microseconds, bucket i
+ * counts the calls which took less than 2^i microseconds, but at least
+ * 2^(i-1). Calls which load or save several documents at once are counted once
+ * per document, but their latency once per call.
+ */
+public interface VirtualCorpusMetricsMBean {
+
+	String getCorpusName();
+
+	String getBackend();
+
+	long getLoadDocumentCount();
+
+	long getLoadDocumentCalls();
+
+	long getLoadDocumentMillis();
+
+	long[] getLoadDocumentLatencyHistogram();
+
+	long getLoadDocumentNameCount();
+
+	long getLoadDocumentNameCalls();
+
+	long getLoadDocumentNameMillis();
+
+	long[] getLoadDocumentNameLatencyHistogram();
+
+	long getLoadDocumentFeaturesCount();
+
+	long getLoadDocumentFeaturesCalls();
+
+	long getLoadDocumentFeaturesMillis();
+
+	long[] getLoadDocumentFeaturesLatencyHistogram();
+
+	long getSetDocumentCount();
+
+	long getSetDocumentCalls();
+
+	long getSetDocumentMillis();
+
+	long[] getSetDocumentLatencyHistogram();
+
+	long getLoadSizeCalls();
+
+	long getLoadSizeMillis();
+
+	long[] getLoadSizeLatencyHistogram();
+
+	long getDocumentNameCacheHits();
+
+	long getDocumentNameCacheMisses();
+
+	long getDocumentNameCacheEvictions();
+
+	int getLoadedDocuments();
+
+	int getChangedDocuments();
+
+	long getLoadedBytes();
+
+	long getBytesRead();
+
+	long getBytesWritten();
+
+	/**
+	 * resets the counters and histograms of the backend calls
+	 */
+	void reset();
+
+}
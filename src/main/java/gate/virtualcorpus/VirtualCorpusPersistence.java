@@ -2,7 +2,10 @@ package gate.virtualcorpus;
 
 import java.io.Serializable;
 
+import org.apache.log4j.Logger;
+
 import gate.persist.PersistenceException;
+import gate.util.GateRuntimeException;
 import gate.util.persistence.LRPersistence;
 
 /**
@@ -14,6 +17,7 @@ import gate.util.persistence.LRPersistence;
  */
 public class VirtualCorpusPersistence extends LRPersistence {
 	public static final long serialVersionUID = 2L;
+	private static Logger logger = Logger.getLogger(VirtualCorpusPersistence.class);
 
 	protected Serializable featureMap;
 
@@ -26,6 +30,13 @@ public class VirtualCorpusPersistence extends LRPersistence {
 		}
 
 		super.extractDataFromSource(source);
+
+		// refresh the manifest, so restoring the application can skip the init work
+		try {
+			((VirtualCorpus) source).writeManifest();
+		} catch (GateRuntimeException e) {
+			logger.warn("cannot write manifest of corpus " + ((VirtualCorpus) source).getName(), e);
+		}
 	}
 
 }
@@ -0,0 +1,205 @@
+package gate.virtualcorpus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import gate.Annotation;
+import gate.AnnotationSet;
+import gate.Document;
+import gate.Factory;
+import gate.TextualDocument;
+import gate.corpora.DocumentImpl;
+import gate.util.GateRuntimeException;
+import gate.util.InvalidOffsetException;
+
+/**
+ * Saves unloaded documents of a {@link VirtualCorpus} in a background thread.
+ *
+ * At most capacity saves are queued, further saves block until one is
+ * finished. A document is saved as a snapshot, because the unloaded document
+ * is usually deleted by the caller right after unloading it.
+ */
+final class WriteBehindQueue {
+
+	interface Writer {
+		void write(int index, Document document) throws Exception;
+	}
+
+	private final int capacity;
+	private final Writer writer;
+	private final Semaphore permits;
+	private final ExecutorService executor;
+	private IndexMap<CompletableFuture<Void>> pendingSaves = new IndexMap<>();
+
+	public WriteBehindQueue(int capacity, String threadName, Writer writer) {
+		this.capacity = capacity;
+		this.writer = writer;
+		this.permits = new Semaphore(capacity);
+		this.executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, threadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * queues a snapshot of the document, blocks while the queue is full
+	 */
+	public void save(int index, Document document) {
+		await(index);
+		if (pendingSaves.size() > capacity) {
+			removeFinishedSaves();
+		}
+		Document snapshot = snapshot(document);
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GateRuntimeException("interrupted while waiting to save document " + index, e);
+		}
+		CompletableFuture<Void> save;
+		try {
+			save = CompletableFuture.runAsync(() -> {
+				try {
+					writer.write(index, snapshot);
+				} catch (Exception e) {
+					throw new CompletionException(e);
+				} finally {
+					permits.release();
+				}
+			}, executor);
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+		pendingSaves.put(index, save);
+	}
+
+	public boolean isPending(int index) {
+		return pendingSaves.containsKey(index);
+	}
+
+	/**
+	 * runs the action once the pending save of the index is written, at once if
+	 * no save is pending. The action is not run, if the save fails.
+	 */
+	public void whenSaved(int index, Runnable action) {
+		CompletableFuture<Void> save = pendingSaves.get(index);
+		if (save == null) {
+			action.run();
+		} else {
+			save.thenRun(action);
+		}
+	}
+
+	/**
+	 * waits until the save of the index is written
+	 */
+	public void await(int index) {
+		CompletableFuture<Void> save = pendingSaves.remove(index);
+		if (save != null) {
+			await(index, save);
+		}
+	}
+
+	/**
+	 * waits until all saves are written
+	 *
+	 * @throws GateRuntimeException of the first failed save
+	 */
+	public void flush() {
+		GateRuntimeException exception = null;
+		for (int index : pendingSaves.indexes()) {
+			try {
+				await(index);
+			} catch (GateRuntimeException e) {
+				if (exception == null) {
+					exception = e;
+				}
+			}
+		}
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	/**
+	 * flushes the queue and stops the background thread
+	 */
+	public void shutdown() {
+		try {
+			flush();
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void removeFinishedSaves() {
+		for (int index : pendingSaves.indexes()) {
+			CompletableFuture<Void> save = pendingSaves.get(index);
+			if (save.isDone() && !save.isCompletedExceptionally()) {
+				pendingSaves.remove(index);
+			}
+		}
+	}
+
+	private static void await(int index, CompletableFuture<Void> save) {
+		try {
+			save.get();
+		} catch (ExecutionException e) {
+			throw new GateRuntimeException("cannot update document " + index, e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GateRuntimeException("interrupted while waiting to save document " + index, e);
+		}
+	}
+
+	/**
+	 * copies the annotation sets of the document, so the snapshot stays intact
+	 * when the original document is cleaned up. Content, annotation features and
+	 * relations are shared, so annotations and relations keep their ids.
+	 */
+	private static Document snapshot(Document document) {
+		DocumentImpl snapshot = new DocumentImpl();
+		snapshot.setName(document.getName());
+		snapshot.setContent(document.getContent());
+		snapshot.setSourceUrl(document.getSourceUrl());
+		snapshot.setMarkupAware(document.getMarkupAware());
+		snapshot.setPreserveOriginalContent(document.getPreserveOriginalContent());
+		if (document instanceof TextualDocument) {
+			snapshot.setEncoding(((TextualDocument) document).getEncoding());
+		}
+		snapshot.setFeatures(Factory.newFeatureMap());
+		snapshot.getFeatures().putAll(document.getFeatures());
+		try {
+			copyAnnotationSet(document.getAnnotations(), snapshot.getAnnotations());
+			for (String annotationSetName : document.getAnnotationSetNames()) {
+				copyAnnotationSet(document.getAnnotations(annotationSetName),
+						snapshot.getAnnotations(annotationSetName));
+			}
+		} catch (InvalidOffsetException e) {
+			throw new GateRuntimeException("cannot copy document " + document, e);
+		}
+		if (document instanceof DocumentImpl) {
+			snapshot.setNextAnnotationId(((DocumentImpl) document).peakAtNextAnnotationId());
+		}
+		return snapshot;
+	}
+
+	private static void copyAnnotationSet(AnnotationSet annotationSet, AnnotationSet snapshotAnnotationSet)
+			throws InvalidOffsetException {
+		for (Annotation annotation : annotationSet) {
+			snapshotAnnotationSet.add(annotation.getId(), annotation.getStartNode().getOffset(),
+					annotation.getEndNode().getOffset(), annotation.getType(), annotation.getFeatures());
+		}
+		if (!annotationSet.getRelations().isEmpty()) {
+			// the same relations keep their ids, members may refer to other relations
+			snapshotAnnotationSet.getRelations().addAll(annotationSet.getRelations());
+		}
+	}
+
+}
@@ -0,0 +1,36 @@
+package gate.virtualcorpus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("gate.virtualcorpus.DocumentGet")
+@Label("Get Document")
+@Category({ "GATE", "Virtual Corpus" })
+@Description("VirtualCorpus.get(int), including loading the document from the backend")
+public class DocumentGetEvent extends Event {
+
+	@Label("Corpus")
+	public String corpus;
+
+	@Label("Backend")
+	public String backend;
+
+	@Label("Index")
+	public int index;
+
+	@Label("Document Name")
+	public String documentName;
+
+	@Label("Estimated Bytes")
+	@DataAmount
+	public long bytes;
+
+	@Label("Loaded")
+	@Description("If the document was not loaded before")
+	public boolean loaded;
+
+}
@@ -0,0 +1,31 @@
+package gate.virtualcorpus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("gate.virtualcorpus.DocumentNameGet")
+@Label("Get Document Name")
+@Category({ "GATE", "Virtual Corpus" })
+@Description("VirtualCorpus.getDocumentName(int), including loading the name from the backend")
+public class DocumentNameGetEvent extends Event {
+
+	@Label("Corpus")
+	public String corpus;
+
+	@Label("Backend")
+	public String backend;
+
+	@Label("Index")
+	public int index;
+
+	@Label("Document Name")
+	public String documentName;
+
+	@Label("Cached")
+	@Description("If the name was found in the document name cache")
+	public boolean cached;
+
+}
@@ -0,0 +1,27 @@
+package gate.virtualcorpus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("gate.virtualcorpus.DocumentRead")
+@Label("Read Serialized Document")
+@Category({ "GATE", "Virtual Corpus" })
+@Description("A serialized document read by a VirtualCorpus backend or from the shared document cache")
+public class DocumentReadEvent extends Event {
+
+	@Label("Document Name")
+	public String documentName;
+
+	@Label("Bytes")
+	@Description("Bytes read from the stream, before decompression")
+	@DataAmount
+	public long bytes;
+
+	@Label("Compressed")
+	public boolean compressed;
+
+}
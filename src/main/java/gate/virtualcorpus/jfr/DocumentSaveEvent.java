@@ -0,0 +1,42 @@
+package gate.virtualcorpus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("gate.virtualcorpus.DocumentSave")
+@Label("Save Document")
+@Category({ "GATE", "Virtual Corpus" })
+@Description("Changed documents written to the backend of a VirtualCorpus")
+public class DocumentSaveEvent extends Event {
+
+	@Label("Corpus")
+	public String corpus;
+
+	@Label("Backend")
+	public String backend;
+
+	@Label("Index")
+	@Description("Index of the first saved document")
+	public int index;
+
+	@Label("Document Name")
+	@Description("Name of the first saved document")
+	public String documentName;
+
+	@Label("Count")
+	@Description("Count of documents saved at once")
+	public int count;
+
+	@Label("Estimated Bytes")
+	@DataAmount
+	public long bytes;
+
+	@Label("Write Behind")
+	@Description("If the documents were saved by the write behind thread")
+	public boolean writeBehind;
+
+}
@@ -0,0 +1,25 @@
+package gate.virtualcorpus.jfr;
+
+/**
+ * Checks once, if JDK Flight Recorder is available. The events of this package
+ * extend jdk.jfr.Event, which is missing on Java 8 before 8u262, so they must
+ * only be created if {@link #AVAILABLE} is true. This class does not depend on
+ * jdk.jfr itself.
+ */
+public final class FlightRecorder {
+
+	public static final boolean AVAILABLE = isAvailable();
+
+	private FlightRecorder() {
+	}
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,31 @@
+package gate.virtualcorpus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("gate.virtualcorpus.jdbc.ResultSetReexecute")
+@Label("Re-execute Result Set Query")
+@Category({ "GATE", "Virtual Corpus", "JDBC" })
+@Description("JdbcCorpus executed the query of a result set again to reach a row")
+public class ResultSetReexecuteEvent extends Event {
+
+	@Label("Corpus")
+	public String corpus;
+
+	@Label("Table")
+	public String table;
+
+	@Label("From Row")
+	@Description("Row of the result set before, 0 if it was closed")
+	public int fromRow;
+
+	@Label("To Row")
+	public int toRow;
+
+	@Label("Reason")
+	public String reason;
+
+}
@@ -0,0 +1,28 @@
+package gate.virtualcorpus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("gate.virtualcorpus.mongodb.Skip")
+@Label("Skip Documents")
+@Category({ "GATE", "Virtual Corpus", "MongoDB" })
+@Description("MongoDbCorpus queried documents with skip(), which the server walks through")
+public class SkipEvent extends Event {
+
+	@Label("Corpus")
+	public String corpus;
+
+	@Label("Collection")
+	public String collection;
+
+	@Label("Skip")
+	public int skip;
+
+	@Label("Limit")
+	@Description("Count of queried documents")
+	public int limit;
+
+}
@@ -0,0 +1,218 @@
+package gate.virtualcorpus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Compares {@link DocumentOrder} with a plain list of document ids, mostly
+ * around the block boundaries.
+ */
+public class DocumentOrderTest {
+
+	private static final int BLOCK = DocumentOrder.MAX_BLOCK_SIZE;
+
+	@Test
+	public void testLegacyStore() {
+		Map<Integer, int[]> storedBlocks = new HashMap<>();
+		DocumentOrder order = new DocumentOrder(storedBlocks, 2 * BLOCK + 3);
+		assertEquals(2 * BLOCK + 3, order.size());
+		for (int index = 0; index < order.size(); index++) {
+			assertEquals(index, order.get(index));
+		}
+		assertStored(storedBlocks);
+
+		int[] newDocumentIds = order.insert(0, 1);
+		assertArrayEquals(new int[] { 2 * BLOCK + 3 }, newDocumentIds);
+	}
+
+	@Test
+	public void testEmptyLegacyStore() {
+		Map<Integer, int[]> storedBlocks = new HashMap<>();
+		DocumentOrder order = new DocumentOrder(storedBlocks, 0);
+		assertEquals(0, order.size());
+		assertArrayEquals(new int[] { 0, 1 }, order.insert(0, 2));
+		assertOrder(Arrays.asList(0, 1), order);
+		assertStored(storedBlocks);
+	}
+
+	@Test
+	public void testInsertAtBlockBoundaries() {
+		Map<Integer, int[]> storedBlocks = new HashMap<>();
+		DocumentOrder order = new DocumentOrder(storedBlocks, 3 * BLOCK);
+		List<Integer> expected = identity(3 * BLOCK);
+
+		insert(order, expected, BLOCK, 1);
+		insert(order, expected, BLOCK - 1, 2);
+		insert(order, expected, 2 * BLOCK + 3, BLOCK + 1);
+		insert(order, expected, 0, 5);
+		insert(order, expected, order.size(), 2 * BLOCK);
+		insert(order, expected, order.size() / 2, 0);
+
+		assertOrder(expected, order);
+		assertStored(storedBlocks);
+	}
+
+	@Test
+	public void testRemoveAcrossBlockBoundaries() {
+		Map<Integer, int[]> storedBlocks = new HashMap<>();
+		DocumentOrder order = new DocumentOrder(storedBlocks, 4 * BLOCK);
+		List<Integer> expected = identity(4 * BLOCK);
+
+		remove(order, expected, indexes(BLOCK - 1, BLOCK, BLOCK + 1));
+		Set<Integer> wholeBlock = new HashSet<>();
+		for (int index = BLOCK; index < 2 * BLOCK + 10; index++) {
+			wholeBlock.add(index);
+		}
+		remove(order, expected, wholeBlock);
+		remove(order, expected, indexes(0, order.size() - 1));
+
+		assertOrder(expected, order);
+		assertStored(storedBlocks);
+	}
+
+	@Test
+	public void testRemoveAll() {
+		Map<Integer, int[]> storedBlocks = new HashMap<>();
+		DocumentOrder order = new DocumentOrder(storedBlocks, 2 * BLOCK);
+		Set<Integer> all = new HashSet<>(identity(2 * BLOCK));
+		remove(order, identity(2 * BLOCK), all);
+		assertEquals(0, order.size());
+		assertEquals(1, storedBlocks.size());
+
+		assertArrayEquals(new int[] { 2 * BLOCK }, order.insert(0, 1));
+		assertOrder(Arrays.asList(2 * BLOCK), order);
+	}
+
+	@Test
+	public void testReopen() {
+		Map<Integer, int[]> storedBlocks = new HashMap<>();
+		DocumentOrder order = new DocumentOrder(storedBlocks, 2 * BLOCK);
+		List<Integer> expected = identity(2 * BLOCK);
+		insert(order, expected, BLOCK, 7);
+		remove(order, expected, indexes(0, BLOCK + 3));
+
+		// the size is only used for stores without order
+		DocumentOrder reopenedOrder = new DocumentOrder(storedBlocks, 0);
+		assertOrder(expected, reopenedOrder);
+
+		insert(reopenedOrder, expected, 0, 3);
+	}
+
+	@Test
+	public void testClear() {
+		Map<Integer, int[]> storedBlocks = new HashMap<>();
+		DocumentOrder order = new DocumentOrder(storedBlocks, 2 * BLOCK);
+		order.clear();
+		assertEquals(0, order.size());
+		assertStored(storedBlocks);
+		assertEquals(0, new DocumentOrder(storedBlocks, 5).size());
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(42);
+		Map<Integer, int[]> storedBlocks = new HashMap<>();
+		DocumentOrder order = new DocumentOrder(storedBlocks, BLOCK);
+		List<Integer> expected = identity(BLOCK);
+		for (int operation = 0; operation < 200; operation++) {
+			if (expected.isEmpty() || random.nextBoolean()) {
+				insert(order, expected, random.nextInt(expected.size() + 1), random.nextInt(BLOCK / 2));
+			} else {
+				Set<Integer> indexes = new HashSet<>();
+				int from = random.nextInt(expected.size());
+				int to = Math.min(expected.size(), from + random.nextInt(BLOCK));
+				for (int index = from; index < to; index++) {
+					if (random.nextInt(4) > 0) {
+						indexes.add(index);
+					}
+				}
+				remove(order, expected, indexes);
+			}
+			assertEquals(expected.size(), order.size());
+		}
+		assertOrder(expected, order);
+		assertStored(storedBlocks);
+		assertOrder(expected, new DocumentOrder(storedBlocks, 0));
+	}
+
+	private static void insert(DocumentOrder order, List<Integer> expected, int index, int count) {
+		int[] newDocumentIds = order.insert(index, count);
+		assertEquals(count, newDocumentIds.length);
+		Set<Integer> documentIds = new HashSet<>(expected);
+		List<Integer> insertedIds = new ArrayList<>(count);
+		for (int newDocumentId : newDocumentIds) {
+			assertTrue("reused id " + newDocumentId, documentIds.add(newDocumentId));
+			insertedIds.add(newDocumentId);
+		}
+		expected.addAll(index, insertedIds);
+	}
+
+	private static void remove(DocumentOrder order, List<Integer> expected, Set<Integer> indexes) {
+		List<Integer> sortedIndexes = new ArrayList<>(new TreeSet<>(indexes));
+		int[] expectedRemovedIds = new int[sortedIndexes.size()];
+		for (int i = 0; i < expectedRemovedIds.length; i++) {
+			expectedRemovedIds[i] = expected.get(sortedIndexes.get(i));
+		}
+		List<Integer> remainingIds = new ArrayList<>(expected.size());
+		for (int index = 0; index < expected.size(); index++) {
+			if (!indexes.contains(index)) {
+				remainingIds.add(expected.get(index));
+			}
+		}
+		expected.clear();
+		expected.addAll(remainingIds);
+		assertArrayEquals(expectedRemovedIds, order.remove(indexes));
+	}
+
+	private static void assertOrder(List<Integer> expected, DocumentOrder order) {
+		assertEquals(expected.size(), order.size());
+		for (int index = 0; index < expected.size(); index++) {
+			assertEquals("index " + index, (int) expected.get(index), order.get(index));
+		}
+	}
+
+	/**
+	 * the store holds the block sequence and exactly the blocks it lists, none
+	 * of them empty or larger than the maximal block size
+	 */
+	private static void assertStored(Map<Integer, int[]> storedBlocks) {
+		int[] sequence = storedBlocks.get(DocumentOrder.SEQUENCE_KEY);
+		assertEquals(sequence.length + 1, storedBlocks.size());
+		for (int blockId : sequence) {
+			int[] documentIds = storedBlocks.get(blockId);
+			assertTrue("block " + blockId + " is missing", documentIds != null);
+			assertTrue("block " + blockId + " is empty", documentIds.length > 0);
+			assertTrue("block " + blockId + " is too large", documentIds.length <= BLOCK);
+		}
+	}
+
+	private static List<Integer> identity(int size) {
+		List<Integer> documentIds = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			documentIds.add(i);
+		}
+		return documentIds;
+	}
+
+	private static Set<Integer> indexes(int... indexes) {
+		Set<Integer> indexSet = new HashSet<>();
+		for (int index : indexes) {
+			indexSet.add(index);
+		}
+		return indexSet;
+	}
+
+}
@@ -0,0 +1,156 @@
+package gate.virtualcorpus;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import gate.Document;
+import gate.Factory;
+import gate.FeatureMap;
+import gate.corpora.DocumentImpl;
+import gate.test.GATEPluginTests;
+
+/**
+ * Measures the cost of looking up, loading and unloading documents while more
+ * and more other documents are held loaded. Lookups of loaded documents use
+ * an identity index, so the held documents must never be compared by equals
+ * or hashCode, however many of them are held. The timings are only logged.
+ */
+public class LoadedDocumentsBenchmarkTest extends GATEPluginTests {
+
+	private static Logger logger = Logger.getLogger(LoadedDocumentsBenchmarkTest.class);
+
+	private static final int[] HELD_DOCUMENTS = { 256, 1024, 4096 };
+	private static final int LOADED_DOCUMENTS = 512;
+	private static final int LOOKUPS = 1_000_000;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testLoadedDocumentsBenchmark() throws Exception {
+		FeatureMap params = Factory.newFeatureMap();
+		params.put("mapDbFile", new File(temporaryFolder.getRoot(), "corpus.mapdb").toURI().toURL());
+		params.put("immutableCorpus", false);
+		params.put("readonlyDocuments", true);
+		VirtualCorpus corpus = (VirtualCorpus) Factory.createResource(MapDbCorpus.class.getName(), params);
+		try {
+			for (int index = 0; index < LOADED_DOCUMENTS; index++) {
+				Document document = Factory.newDocument("content of document " + index);
+				document.setName("document" + index);
+				corpus.add(document);
+				corpus.unloadDocument(document);
+				Factory.deleteResource(document);
+			}
+
+			// warmup
+			List<Document> heldDocuments = hold(corpus, HELD_DOCUMENTS[0]);
+			lookup(corpus, heldDocuments);
+			loadAndUnload(corpus);
+			release(corpus, heldDocuments);
+
+			for (int i = 0; i < HELD_DOCUMENTS.length; i++) {
+				heldDocuments = hold(corpus, HELD_DOCUMENTS[i]);
+				assertEquals(HELD_DOCUMENTS[i], corpus.getLoadedDocumentCount());
+
+				CountingDocument.comparisons.set(0);
+				double lookupNanos = lookup(corpus, heldDocuments);
+				assertEquals("comparisons of held documents by lookups", 0, CountingDocument.comparisons.get());
+				double loadNanos = loadAndUnload(corpus);
+				assertEquals("comparisons of held documents by get and unload", 0,
+						CountingDocument.comparisons.get());
+				logger.info(String.format("%d held documents: %.1f ns per lookup, %.0f ns per get and unload",
+						HELD_DOCUMENTS[i], lookupNanos, loadNanos));
+
+				release(corpus, heldDocuments);
+				assertEquals(0, corpus.getLoadedDocumentCount());
+			}
+		} finally {
+			Factory.deleteResource(corpus);
+		}
+	}
+
+	/**
+	 * adds count new documents, which stay loaded until they are released
+	 */
+	private static List<Document> hold(VirtualCorpus corpus, int count) throws Exception {
+		List<Document> documents = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			CountingDocument document = new CountingDocument();
+			document.setStringContent("content of held document " + i);
+			document.setFeatures(Factory.newFeatureMap());
+			document.init();
+			document.setName("held" + corpus.size());
+			corpus.add(document);
+			documents.add(document);
+		}
+		return documents;
+	}
+
+	private static void release(VirtualCorpus corpus, List<Document> documents) {
+		for (Document document : documents) {
+			corpus.unloadDocument(document);
+			Factory.deleteResource(document);
+		}
+	}
+
+	/**
+	 * @return nanoseconds per indexOf and contains of a held document
+	 */
+	private static double lookup(VirtualCorpus corpus, List<Document> heldDocuments) {
+		int firstIndex = corpus.size() - heldDocuments.size();
+		long start = System.nanoTime();
+		for (int i = 0; i < LOOKUPS; i++) {
+			int index = i % heldDocuments.size();
+			Document document = heldDocuments.get(index);
+			if (corpus.indexOf(document) != firstIndex + index || !corpus.contains(document)) {
+				throw new AssertionError("document " + index + " not found");
+			}
+		}
+		return (double) (System.nanoTime() - start) / LOOKUPS;
+	}
+
+	/**
+	 * @return nanoseconds per get and unload of a document which is not held
+	 */
+	private static double loadAndUnload(VirtualCorpus corpus) {
+		long start = System.nanoTime();
+		for (int index = 0; index < LOADED_DOCUMENTS; index++) {
+			Document document = corpus.get(index);
+			corpus.unloadDocument(document);
+			Factory.deleteResource(document);
+		}
+		return (double) (System.nanoTime() - start) / LOADED_DOCUMENTS;
+	}
+
+	/**
+	 * counts the calls of equals and hashCode, which a lookup by identity never
+	 * makes
+	 */
+	private static class CountingDocument extends DocumentImpl {
+		private static final long serialVersionUID = 1L;
+
+		static final AtomicLong comparisons = new AtomicLong();
+
+		@Override
+		public boolean equals(Object object) {
+			comparisons.incrementAndGet();
+			return super.equals(object);
+		}
+
+		@Override
+		public int hashCode() {
+			comparisons.incrementAndGet();
+			return super.hashCode();
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+package gate.virtualcorpus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+
+import org.apache.log4j.Logger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import gate.AnnotationSet;
+import gate.Document;
+import gate.Factory;
+import gate.FeatureMap;
+import gate.test.GATEPluginTests;
+
+/**
+ * Compares the cost of getting and unloading documents with many annotations
+ * from the same MapDB file with readonly and with writable documents. Readonly
+ * documents are not fingerprinted, so their cost should not contain a walk
+ * over all annotations at load and at unload. The timings are only logged, the
+ * missing fingerprint is asserted by the changes it does not detect.
+ */
+public class ReadonlyDocumentsBenchmarkTest extends GATEPluginTests {
+
+	private static Logger logger = Logger.getLogger(ReadonlyDocumentsBenchmarkTest.class);
+
+	private static final int DOCUMENTS = 8;
+	private static final int ANNOTATIONS = 20_000;
+	private static final int ROUNDS = 5;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testReadonlyDocumentsBenchmark() throws Exception {
+		URL mapDbFile = new File(temporaryFolder.getRoot(), "corpus.mapdb").toURI().toURL();
+		populate(mapDbFile);
+
+		// warmup
+		getAndUnload(mapDbFile, true);
+		getAndUnload(mapDbFile, false);
+
+		double readonlyNanos = 0;
+		double writableNanos = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			readonlyNanos += getAndUnload(mapDbFile, true) / ROUNDS;
+			writableNanos += getAndUnload(mapDbFile, false) / ROUNDS;
+		}
+		logger.info(String.format(
+				"documents with %d annotations: %.2f ms per readonly and %.2f ms per writable get and unload",
+				ANNOTATIONS, readonlyNanos / 1e6, writableNanos / 1e6));
+	}
+
+	/**
+	 * changed features of annotations are only detected by the fingerprint, so
+	 * they go unnoticed in readonly documents, which are then evicted with their
+	 * changes
+	 */
+	@Test
+	public void testReadonlyChangeDetection() throws Exception {
+		URL mapDbFile = new File(temporaryFolder.getRoot(), "corpus.mapdb").toURI().toURL();
+		populate(mapDbFile);
+
+		FeatureMap params = Factory.newFeatureMap();
+		params.put("mapDbFile", mapDbFile);
+		params.put("immutableCorpus", true);
+		params.put("readonlyDocuments", true);
+		params.put("maxLoadedDocuments", 1);
+		VirtualCorpus corpus = (VirtualCorpus) Factory.createResource(MapDbCorpus.class.getName(), params);
+		try {
+			Document document = corpus.get(0);
+			changeAnnotationFeature(document);
+			assertEquals(0, corpus.getChangedDocumentCount());
+			corpus.get(1);
+			assertFalse("evicted with its changed annotation feature", corpus.isDocumentLoaded(0));
+
+			document = corpus.get(2);
+			document.getAnnotations("Tokens").add(0L, 5L, "Token", Factory.newFeatureMap());
+			assertEquals(1, corpus.getChangedDocumentCount());
+			corpus.get(3);
+			assertTrue("kept with its added annotation", corpus.isDocumentLoaded(2));
+		} finally {
+			Factory.deleteResource(corpus);
+		}
+
+		params.put("readonlyDocuments", false);
+		params.remove("maxLoadedDocuments");
+		corpus = (VirtualCorpus) Factory.createResource(MapDbCorpus.class.getName(), params);
+		try {
+			Document document = corpus.get(0);
+			changeAnnotationFeature(document);
+			assertEquals(1, corpus.getChangedDocumentCount());
+		} finally {
+			Factory.deleteResource(corpus);
+		}
+	}
+
+	private static void changeAnnotationFeature(Document document) {
+		document.getAnnotations("Tokens").iterator().next().getFeatures().put("number", -1);
+	}
+
+	private static void populate(URL mapDbFile) throws Exception {
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < ANNOTATIONS; i++) {
+			content.append("token").append(i).append(' ');
+		}
+		FeatureMap params = Factory.newFeatureMap();
+		params.put("mapDbFile", mapDbFile);
+		params.put("immutableCorpus", false);
+		params.put("readonlyDocuments", false);
+		VirtualCorpus corpus = (VirtualCorpus) Factory.createResource(MapDbCorpus.class.getName(), params);
+		try {
+			for (int index = 0; index < DOCUMENTS; index++) {
+				Document document = Factory.newDocument(content.toString());
+				document.setName("document" + index);
+				AnnotationSet tokens = document.getAnnotations("Tokens");
+				long offset = 0;
+				for (int i = 0; i < ANNOTATIONS; i++) {
+					long end = offset + ("token" + i).length();
+					FeatureMap features = Factory.newFeatureMap();
+					features.put("number", i);
+					tokens.add(offset, end, "Token", features);
+					offset = end + 1;
+				}
+				corpus.add(document);
+				corpus.unloadDocument(document);
+				Factory.deleteResource(document);
+			}
+		} finally {
+			Factory.deleteResource(corpus);
+		}
+	}
+
+	/**
+	 * @return nanoseconds per get and unload of an unchanged document
+	 */
+	private static double getAndUnload(URL mapDbFile, boolean readonlyDocuments) throws Exception {
+		FeatureMap params = Factory.newFeatureMap();
+		params.put("mapDbFile", mapDbFile);
+		params.put("immutableCorpus", true);
+		params.put("readonlyDocuments", readonlyDocuments);
+		VirtualCorpus corpus = (VirtualCorpus) Factory.createResource(MapDbCorpus.class.getName(), params);
+		try {
+			assertEquals(DOCUMENTS, corpus.size());
+			long start = System.nanoTime();
+			for (int index = 0; index < DOCUMENTS; index++) {
+				Document document = corpus.get(index);
+				assertEquals(ANNOTATIONS, document.getAnnotations("Tokens").size());
+				corpus.unloadDocument(document);
+				Factory.deleteResource(document);
+			}
+			return (double) (System.nanoTime() - start) / DOCUMENTS;
+		} finally {
+			Factory.deleteResource(corpus);
+		}
+	}
+
+}
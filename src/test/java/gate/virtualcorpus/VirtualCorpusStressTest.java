@@ -0,0 +1,215 @@
+package gate.virtualcorpus;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import gate.Document;
+import gate.Factory;
+import gate.FeatureMap;
+import gate.corpora.DocumentContentImpl;
+import gate.test.GATEPluginTests;
+
+/**
+ * Gets, changes and unloads documents of one corpus from 32 threads. Each
+ * thread owns the documents whose index modulo the thread count is its number,
+ * so documents are never changed by two threads, while all threads share the
+ * corpus and its backend. Every unload saves the document, so a lost update
+ * shows as a wrong visit count.
+ */
+public class VirtualCorpusStressTest extends GATEPluginTests {
+
+	private static final int THREADS = 32;
+	private static final int DOCUMENTS = 256;
+	private static final int ROUNDS = 10;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testMapDbCorpus() throws Exception {
+		FeatureMap params = Factory.newFeatureMap();
+		params.put("mapDbFile", new File(temporaryFolder.getRoot(), "corpus.mapdb").toURI().toURL());
+		stressTest(MapDbCorpus.class.getName(), params);
+	}
+
+	@Test
+	public void testMapDbCorpusWriteBehind() throws Exception {
+		FeatureMap params = Factory.newFeatureMap();
+		params.put("mapDbFile", new File(temporaryFolder.getRoot(), "corpus.mapdb").toURI().toURL());
+		params.put("writeBehindQueueSize", 8);
+		stressTest(MapDbCorpus.class.getName(), params);
+	}
+
+	@Test
+	public void testSerializedFilesCorpus() throws Exception {
+		FeatureMap params = Factory.newFeatureMap();
+		params.put("directoryURL", temporaryFolder.newFolder("corpus").toURI().toURL());
+		stressTest(SerializedFilesCorpus.class.getName(), params);
+	}
+
+	/**
+	 * the table is stored in a SQLite file in WAL mode, so the loading
+	 * connections of the threads can read while the corpus updates. Only the
+	 * content is saved, so a visit appends a character to the content.
+	 */
+	@Test
+	public void testJdbcCorpus() throws Exception {
+		String jdbcUrl = "jdbc:sqlite:" + new File(temporaryFolder.getRoot(), "corpus.sqlite").getAbsolutePath();
+		try (Connection connection = DriverManager.getConnection(jdbcUrl);
+				Statement statement = connection.createStatement()) {
+			statement.execute("PRAGMA journal_mode=WAL");
+			statement.execute("CREATE TABLE documents (id INTEGER PRIMARY KEY, content TEXT)");
+			try (PreparedStatement insert = connection
+					.prepareStatement("INSERT INTO documents (id, content) VALUES (?, ?)")) {
+				for (int index = 0; index < DOCUMENTS; index++) {
+					insert.setInt(1, index + 1);
+					insert.setString(2, "content of document " + index);
+					insert.executeUpdate();
+				}
+			}
+		}
+
+		FeatureMap params = Factory.newFeatureMap();
+		params.put("jdbcDriver", "org.sqlite.JDBC");
+		params.put("jdbcUrl", jdbcUrl);
+		params.put("tableName", "documents");
+		params.put("idColumn", "id");
+		params.put("contentColumns", "content");
+		params.put("encoding", "UTF-8");
+		params.put("readonlyDocuments", false);
+		params.put("concurrentLoading", true);
+		VirtualCorpus corpus = (VirtualCorpus) Factory.createResource(JdbcCorpus.class.getName(), params);
+		try {
+			runThreads(corpus, (index, expectedVisits) -> {
+				Document document = corpus.get(index);
+				assertEquals(String.valueOf(index + 1), document.getName());
+				assertEquals("visits of document " + index, expectedVisits, visits(document));
+				long end = document.getContent().size();
+				document.edit(end, end, new DocumentContentImpl("|"));
+				corpus.unloadDocument(document);
+				Factory.deleteResource(document);
+			}, index -> String.valueOf(index + 1));
+
+			for (int index = 0; index < DOCUMENTS; index++) {
+				Document document = corpus.get(index);
+				assertEquals("visits of document " + index, ROUNDS, visits(document));
+				corpus.unloadDocument(document);
+				Factory.deleteResource(document);
+			}
+			assertEquals(0, corpus.getLoadedDocumentCount());
+		} finally {
+			Factory.deleteResource(corpus);
+		}
+	}
+
+	private void stressTest(String corpusClassName, FeatureMap params) throws Exception {
+		params.put("immutableCorpus", false);
+		params.put("readonlyDocuments", false);
+		params.put("concurrentLoading", true);
+		VirtualCorpus corpus = (VirtualCorpus) Factory.createResource(corpusClassName, params);
+		try {
+			for (int index = 0; index < DOCUMENTS; index++) {
+				Document document = Factory.newDocument("content of document " + index);
+				document.setName(documentName(index));
+				corpus.add(document);
+				corpus.unloadDocument(document);
+				Factory.deleteResource(document);
+			}
+
+			runThreads(corpus, (index, expectedVisits) -> visit(corpus, index, expectedVisits),
+					VirtualCorpusStressTest::documentName);
+
+			assertEquals(DOCUMENTS, corpus.size());
+			for (int index = 0; index < DOCUMENTS; index++) {
+				Document document = corpus.get(index);
+				assertEquals(documentName(index), document.getName());
+				assertEquals("visits of document " + index, ROUNDS, document.getFeatures().get("visits"));
+				assertEquals("annotations of document " + index, ROUNDS,
+						document.getAnnotations().get("Visit").size());
+				corpus.unloadDocument(document);
+				Factory.deleteResource(document);
+			}
+			assertEquals(0, corpus.getLoadedDocumentCount());
+		} finally {
+			Factory.deleteResource(corpus);
+		}
+	}
+
+	private interface Visitor {
+		void visit(int index, int expectedVisits) throws Exception;
+	}
+
+	private interface DocumentNames {
+		String documentName(int index);
+	}
+
+	private static void runThreads(VirtualCorpus corpus, Visitor visitor, DocumentNames documentNames)
+			throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> workers = new ArrayList<>();
+		for (int thread = 0; thread < THREADS; thread++) {
+			int firstIndex = thread;
+			workers.add(executor.submit(() -> {
+				start.await();
+				int[] visits = new int[DOCUMENTS];
+				for (int round = 0; round < ROUNDS; round++) {
+					for (int index = firstIndex; index < DOCUMENTS; index += THREADS) {
+						visitor.visit(index, visits[index]++);
+					}
+					// other threads read the names of all documents meanwhile
+					int index = ThreadLocalRandom.current().nextInt(DOCUMENTS);
+					assertEquals(documentNames.documentName(index), corpus.getDocumentName(index));
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		try {
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+	}
+
+	private static void visit(VirtualCorpus corpus, int index, int expectedVisits) throws Exception {
+		Document document = corpus.get(index);
+		assertEquals(documentName(index), document.getName());
+		Object visits = document.getFeatures().get("visits");
+		assertEquals("visits of document " + index, expectedVisits, visits == null ? 0 : visits);
+		document.getFeatures().put("visits", expectedVisits + 1);
+		document.getAnnotations().add(0L, 7L, "Visit", Factory.newFeatureMap());
+		corpus.unloadDocument(document);
+		Factory.deleteResource(document);
+	}
+
+	private static int visits(Document document) {
+		String content = document.getContent().toString();
+		return content.length() - content.replace("|", "").length();
+	}
+
+	private static String documentName(int index) {
+		return "document" + index;
+	}
+
+}